@@ -8,6 +8,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class BasicPayCalculator {
     private static final double HOURLY_RATE = 107.14; // P15,000 / 140 hours monthly (Assuming 35 hours per week)
@@ -21,23 +22,35 @@ public class BasicPayCalculator {
         double totalPay = 0.0;
 
         for (TimeLog log : timeLogs) {
-            if (log.getTimeIn() != null && log.getTimeOut() != null) {
-                // Calculate regular hours and pay
-                double hoursWorked = calculateHoursWorked(log);
-                double regularPay = calculateRegularPay(hoursWorked);
+            totalPay += calculateDailyPay(log);
+        }
 
-                // Calculate overtime pay if applicable
-                double overtimePay = calculateOvertimePay(hoursWorked);
+        return totalPay;
+    }
 
-                // Calculate night differential pay if applicable
-                double nightDiffPay = calculateNightDifferentialPay(log);
+    // Same as above, but consumes the logs as they are produced (e.g. streamed from the file)
+    public double calculateBasicPay(Employee employee,
+                                    Stream<TimeLog> timeLogs) {
+        return timeLogs.mapToDouble(this::calculateDailyPay).sum();
+    }
 
-                // Add all components for this day
-                totalPay += regularPay + overtimePay + nightDiffPay;
-            }
+    private double calculateDailyPay(TimeLog log) {
+        if (log.getTimeIn() == null || log.getTimeOut() == null) {
+            return 0.0;
         }
 
-        return totalPay;
+        // Calculate regular hours and pay
+        double hoursWorked = calculateHoursWorked(log);
+        double regularPay = calculateRegularPay(hoursWorked);
+
+        // Calculate overtime pay if applicable
+        double overtimePay = calculateOvertimePay(hoursWorked);
+
+        // Calculate night differential pay if applicable
+        double nightDiffPay = calculateNightDifferentialPay(log);
+
+        // Add all components for this day
+        return regularPay + overtimePay + nightDiffPay;
     }
 
     private double calculateHoursWorked(TimeLog log) {
@@ -0,0 +1,348 @@
+package Core;
+
+import FileReaders.DateTimeDecoder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Time logs stored column by column in parallel primitive arrays instead of one object
+ * graph per punch:
+ *
+ * - employee id (int, from the shared {@link EmployeeIdDictionary})
+ * - epoch day (int)
+ * - minute of day of time in and time out (short, -1 when the punch is missing)
+ *
+ * That is 12 bytes per punch, against roughly 100 for a TimeLog with its LocalDate
+ * and two LocalTimes, and a scan walks four dense arrays.
+ *
+ * This is the "heap" {@link TimeLogStore}; it is a {@link List} of TimeLog so existing
+ * callers keep working. {@link #get} builds a read-only TimeLog for the row (times are
+ * kept to the minute, as in the attendance file); changing one throws
+ * UnsupportedOperationException. Rows can be added and removed, but not replaced.
+ * Writes synchronize on the store; {@link #snapshot()} gives readers on other threads a
+ * fixed view without copying.
+ */
+public class ColumnarTimeLogStore extends AbstractList<TimeLog> implements TimeLogStore, RandomAccess {
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final short NO_TIME = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final EmployeeIdDictionary DICTIONARY = EmployeeIdDictionary.shared();
+
+    private int[] employeeIdColumn;
+    private int[] epochDays;
+    private short[] minutesIn;
+    private short[] minutesOut;
+    private int size;
+    // Set while a snapshot may still read the current arrays
+    private boolean shared;
+    // Told about every write once attached, under the store's lock
+    private TimeLogIndex index;
+
+    public ColumnarTimeLogStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ColumnarTimeLogStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        employeeIdColumn = new int[capacity];
+        epochDays = new int[capacity];
+        minutesIn = new short[capacity];
+        minutesOut = new short[capacity];
+    }
+
+    /**
+     * @param timeLogs The time logs to copy, in order
+     * @return A store holding the same rows
+     */
+    public static ColumnarTimeLogStore copyOf(Collection<TimeLog> timeLogs) {
+        ColumnarTimeLogStore store = new ColumnarTimeLogStore(timeLogs.size());
+        store.addAll(timeLogs);
+        return store;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public TimeLog get(int row) {
+        checkRow(row);
+        return view(employeeIdColumn[row], epochDays[row], minutesIn[row], minutesOut[row]);
+    }
+
+    @Override
+    public synchronized boolean add(TimeLog timeLog) {
+        if (size == epochDays.length) {
+            grow(size + 1);
+        }
+        employeeIdColumn[size] = timeLog.getEmployeeId();
+        epochDays[size] = dayOf(timeLog.getDate());
+        minutesIn[size] = minuteOf(timeLog.getTimeIn());
+        minutesOut[size] = minuteOf(timeLog.getTimeOut());
+        size++;
+        modCount++;
+        if (index != null) {
+            index.add(timeLog);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends TimeLog> timeLogs) {
+        if (size + timeLogs.size() > epochDays.length) {
+            grow(size + timeLogs.size());
+        }
+        for (TimeLog timeLog : timeLogs) {
+            add(timeLog);
+        }
+        return !timeLogs.isEmpty();
+    }
+
+    @Override
+    public synchronized TimeLog remove(int row) {
+        TimeLog removed = get(row);
+        unshare();
+        int moved = size - row - 1;
+        System.arraycopy(employeeIdColumn, row + 1, employeeIdColumn, row, moved);
+        System.arraycopy(epochDays, row + 1, epochDays, row, moved);
+        System.arraycopy(minutesIn, row + 1, minutesIn, row, moved);
+        System.arraycopy(minutesOut, row + 1, minutesOut, row, moved);
+        size--;
+        modCount++;
+        reindex();
+        return removed;
+    }
+
+    // One compacting pass instead of a shift per removed row
+    @Override
+    public synchronized boolean removeIf(Predicate<? super TimeLog> filter) {
+        unshare();
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (!filter.test(get(row))) {
+                moveRow(row, kept++);
+            }
+        }
+        boolean removed = truncate(kept);
+        if (removed) {
+            reindex();
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized boolean removeEmployee(String employeeNumber) {
+        int id = DICTIONARY.find(employeeNumber);
+        if (id == EmployeeIdDictionary.UNKNOWN) {
+            return false;
+        }
+        unshare();
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (employeeIdColumn[row] != id) {
+                moveRow(row, kept++);
+            }
+        }
+        boolean removed = truncate(kept);
+        if (removed && index != null) {
+            index.removeEmployee(employeeNumber);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        unshare();
+        size = 0;
+        modCount++;
+        reindex();
+    }
+
+    @Override
+    public synchronized List<TimeLog> snapshot() {
+        shared = true;
+        return new Snapshot(employeeIdColumn, epochDays, minutesIn, minutesOut, size);
+    }
+
+    @Override
+    public synchronized void attachIndex(TimeLogIndex index) {
+        this.index = index;
+        reindex();
+    }
+
+    @Override
+    public String getEmployeeNumber(int row) {
+        checkRow(row);
+        return DICTIONARY.numberOf(employeeIdColumn[row]);
+    }
+
+    @Override
+    public int getEmployeeId(int row) {
+        checkRow(row);
+        return employeeIdColumn[row];
+    }
+
+    @Override
+    public int getEpochDay(int row) {
+        checkRow(row);
+        return epochDays[row];
+    }
+
+    @Override
+    public int getMinuteIn(int row) {
+        checkRow(row);
+        return minutesIn[row];
+    }
+
+    @Override
+    public int getMinuteOut(int row) {
+        checkRow(row);
+        return minutesOut[row];
+    }
+
+    /**
+     * @return Bytes held by the row columns (excluding spare capacity)
+     */
+    public long getColumnBytes() {
+        return (long) size * (Integer.BYTES * 2 + Short.BYTES * 2);
+    }
+
+    static int dayOf(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    static short minuteOf(LocalTime time) {
+        return time == null ? NO_TIME : (short) (time.getHour() * 60 + time.getMinute());
+    }
+
+    // A read-only TimeLog for stored column values
+    static TimeLog view(int employeeId, int epochDay, short minuteIn, short minuteOut) {
+        return new ReadOnlyTimeLog(employeeId,
+                epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay),
+                minuteIn == NO_TIME ? null : DateTimeDecoder.timeOf(minuteIn),
+                minuteOut == NO_TIME ? null : DateTimeDecoder.timeOf(minuteOut));
+    }
+
+    // Removals other than a whole employee are rare, so the index is simply rebuilt
+    // (holding its lock, so no query sees it half full)
+    private void reindex() {
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            index.clear();
+            for (int row = 0; row < size; row++) {
+                index.add(get(row));
+            }
+        }
+    }
+
+    private void moveRow(int from, int to) {
+        if (from != to) {
+            employeeIdColumn[to] = employeeIdColumn[from];
+            epochDays[to] = epochDays[from];
+            minutesIn[to] = minutesIn[from];
+            minutesOut[to] = minutesOut[from];
+        }
+    }
+
+    private boolean truncate(int newSize) {
+        if (newSize == size) {
+            return false;
+        }
+        size = newSize;
+        modCount++;
+        return true;
+    }
+
+    private void grow(int minCapacity) {
+        copyColumns(Math.max(minCapacity, epochDays.length + (epochDays.length >> 1)));
+    }
+
+    // Rows a snapshot can see are never overwritten: move to a private copy first
+    private void unshare() {
+        if (shared) {
+            copyColumns(epochDays.length);
+        }
+    }
+
+    private void copyColumns(int capacity) {
+        employeeIdColumn = Arrays.copyOf(employeeIdColumn, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        minutesIn = Arrays.copyOf(minutesIn, capacity);
+        minutesOut = Arrays.copyOf(minutesOut, capacity);
+        shared = false;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    // The first rows of a set of columns, which the store no longer writes to
+    private static final class Snapshot extends AbstractList<TimeLog> implements RandomAccess {
+        private final int[] employeeIdColumn;
+        private final int[] epochDays;
+        private final short[] minutesIn;
+        private final short[] minutesOut;
+        private final int size;
+
+        Snapshot(int[] employeeIdColumn, int[] epochDays, short[] minutesIn, short[] minutesOut, int size) {
+            this.employeeIdColumn = employeeIdColumn;
+            this.epochDays = epochDays;
+            this.minutesIn = minutesIn;
+            this.minutesOut = minutesOut;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public TimeLog get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            return view(employeeIdColumn[row], epochDays[row], minutesIn[row], minutesOut[row]);
+        }
+    }
+
+    private static final class ReadOnlyTimeLog extends TimeLog {
+        ReadOnlyTimeLog(int employeeId, LocalDate date, LocalTime timeIn, LocalTime timeOut) {
+            super(employeeId, date, timeIn, timeOut);
+        }
+
+        @Override
+        public void setEmployeeNumber(String employeeNumber) {
+            throw new UnsupportedOperationException("Stored time logs are read-only");
+        }
+
+        @Override
+        public void setDate(LocalDate date) {
+            throw new UnsupportedOperationException("Stored time logs are read-only");
+        }
+
+        @Override
+        public void setTimeIn(LocalTime timeIn) {
+            throw new UnsupportedOperationException("Stored time logs are read-only");
+        }
+
+        @Override
+        public void setTimeOut(LocalTime timeOut) {
+            throw new UnsupportedOperationException("Stored time logs are read-only");
+        }
+    }
+}
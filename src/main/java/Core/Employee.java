@@ -2,6 +2,7 @@ package Core;
 
 public class Employee {
     private String employeeNumber;
+    private int employeeId = EmployeeIdDictionary.UNKNOWN; // Looked up on first use
     private String lastName;
     private String firstName;
     private String birthDate;
@@ -62,11 +63,22 @@ public class Employee {
     // Existing getters and setters...
     public void setEmployeeNumber(String employeeNumber) {
         this.employeeNumber = employeeNumber;
+        this.employeeId = EmployeeIdDictionary.UNKNOWN;
     }
     public String getEmployeeNumber() {
         return employeeNumber;
     }
 
+    /**
+     * @return The dictionary id of the employee number (see {@link EmployeeIdDictionary})
+     */
+    public int getEmployeeId() {
+        if (employeeId == EmployeeIdDictionary.UNKNOWN && employeeNumber != null) {
+            employeeId = EmployeeIdDictionary.shared().idOf(employeeNumber);
+        }
+        return employeeId;
+    }
+
     public String getLastName() {
         return lastName;
     }
@@ -130,4 +142,20 @@ public class Employee {
     public double getHourlyRate() {
         return hourlyRate;
     }
+
+    /**
+     * @param basicSalary A monthly basic salary
+     * @return The gross semi-monthly rate paid on it
+     */
+    public static double semiMonthlyRateOf(double basicSalary) {
+        return basicSalary / 2;
+    }
+
+    /**
+     * @param basicSalary A monthly basic salary
+     * @return The hourly rate, assuming 22 working days per month and 8 hours per day
+     */
+    public static double hourlyRateOf(double basicSalary) {
+        return basicSalary / (22 * 8);
+    }
 }
\ No newline at end of file
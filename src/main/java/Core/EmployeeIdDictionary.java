@@ -0,0 +1,78 @@
+package Core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps each employee number to a dense int id (0, 1, 2, ... in order of first sight)
+ * and back. Employees, time logs, the time log stores and the per-employee index all
+ * use the same shared dictionary, so they can join and filter on ints instead of
+ * comparing strings, and each employee number is kept once.
+ *
+ * Ids are never reused or removed, so an id stays valid for the life of the process.
+ * Lookups do not lock; assigning a new id does.
+ */
+public final class EmployeeIdDictionary {
+    public static final int UNKNOWN = -1;
+
+    private static final EmployeeIdDictionary SHARED = new EmployeeIdDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] employeeNumbers = new String[256];
+    private int size; // Guarded by this
+
+    private EmployeeIdDictionary() {
+    }
+
+    public static EmployeeIdDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param employeeNumber An employee number
+     * @return Its id, assigning the next one if the number is new
+     */
+    public int idOf(String employeeNumber) {
+        Integer id = ids.get(employeeNumber);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(employeeNumber);
+            if (id != null) {
+                return id;
+            }
+            String[] numbers = employeeNumbers;
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size] = employeeNumber;
+            // Publish the array before the id, so whoever sees the id can read the number
+            employeeNumbers = numbers;
+            ids.put(employeeNumber, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param employeeNumber An employee number
+     * @return Its id, or {@link #UNKNOWN} if it has never been seen (no id is assigned)
+     */
+    public int find(String employeeNumber) {
+        Integer id = ids.get(employeeNumber);
+        return id != null ? id : UNKNOWN;
+    }
+
+    /**
+     * @param id An id returned by {@link #idOf}
+     * @return The employee number it stands for
+     */
+    public String numberOf(int id) {
+        return employeeNumbers[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
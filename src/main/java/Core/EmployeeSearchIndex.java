@@ -0,0 +1,224 @@
+package Core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Substring search over employee number, last name, first name and position, with the
+ * same matching as a case-insensitive contains on each field.
+ *
+ * Each employee's fields are lower-cased once, when the employee is added or updated,
+ * and every three-character window (trigram) of them points back to the employee. A
+ * search of three or more characters looks up the trigrams of the term and checks only
+ * the employees under the rarest one. Shorter terms match too many employees for an
+ * index to help, so they scan the lower-cased fields, which is still cheap because
+ * nothing is lower-cased at query time.
+ *
+ * Results come back in the order employees were first added. Thread safe: searches run
+ * off the EDT while the watcher and the UI apply changes.
+ */
+public class EmployeeSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    // Joins the fields so that a match cannot span two of them
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    // All guarded by this. A slot is an employee's place in insertion order; removed
+    // slots are null until the next rebuild.
+    private Employee[] employees = new Employee[64];
+    private String[] searchText = new String[64];
+    private int slotCount;
+    private final Map<String, Integer> slotsByNumber = new HashMap<>();
+    private final Map<String, Postings> postingsByGram = new HashMap<>();
+    // Removed slots plus updates whose old trigrams were left behind
+    private int staleEntries;
+
+    /**
+     * @param employees The employees to index, in display order
+     * @return A new index over them
+     */
+    public static EmployeeSearchIndex build(List<Employee> employees) {
+        EmployeeSearchIndex index = new EmployeeSearchIndex();
+        for (Employee employee : employees) {
+            index.put(employee);
+        }
+        return index;
+    }
+
+    /**
+     * Adds an employee, or replaces the one with the same employee number in its place
+     * @param employee The employee to index
+     */
+    public synchronized void put(Employee employee) {
+        String text = searchTextOf(employee);
+        Integer slot = slotsByNumber.get(employee.getEmployeeNumber());
+        if (slot == null) {
+            slot = addSlot(employee, text);
+            for (String gram : gramsOf(text)) {
+                postingsByGram.computeIfAbsent(gram, key -> new Postings()).add(slot);
+            }
+            return;
+        }
+
+        // Only the new trigrams are added; the old ones stay until the next rebuild and
+        // are filtered out because the candidate no longer contains the term
+        Set<String> oldGrams = gramsOf(searchText[slot]);
+        employees[slot] = employee;
+        searchText[slot] = text;
+        for (String gram : gramsOf(text)) {
+            if (!oldGrams.contains(gram)) {
+                postingsByGram.computeIfAbsent(gram, key -> new Postings()).add(slot);
+            }
+        }
+        staleEntries++;
+        rebuildIfStale();
+    }
+
+    /**
+     * @param employeeNumber The employee to drop from the index
+     */
+    public synchronized void remove(String employeeNumber) {
+        Integer slot = slotsByNumber.remove(employeeNumber);
+        if (slot == null) {
+            return;
+        }
+        employees[slot] = null;
+        searchText[slot] = null;
+        staleEntries++;
+        rebuildIfStale();
+    }
+
+    /**
+     * @param term The text to look for (case-insensitive, surrounding spaces ignored)
+     * @return Employees with the term in their number, names or position; every
+     *         employee if the term is blank
+     */
+    public synchronized List<Employee> search(String term) {
+        String needle = term.toLowerCase().trim();
+        List<Employee> found = new ArrayList<>();
+        if (needle.length() < GRAM_LENGTH) {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (searchText[slot] != null && searchText[slot].contains(needle)) {
+                    found.add(employees[slot]);
+                }
+            }
+            return found;
+        }
+
+        Postings rarest = null;
+        for (String gram : gramsOf(needle)) {
+            Postings postings = postingsByGram.get(gram);
+            if (postings == null) {
+                return found;
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        if (rarest == null) {
+            // Every window of the term crosses a field separator, so nothing can match
+            return found;
+        }
+
+        int[] matches = new int[rarest.size];
+        int matchCount = 0;
+        for (int i = 0; i < rarest.size; i++) {
+            int slot = rarest.slots[i];
+            if (searchText[slot] != null && searchText[slot].contains(needle)) {
+                matches[matchCount++] = slot;
+            }
+        }
+        // Updates append to postings out of slot order, and an employee whose update
+        // brings back a trigram it lost earlier is listed under it twice
+        Arrays.sort(matches, 0, matchCount);
+        for (int i = 0; i < matchCount; i++) {
+            if (i == 0 || matches[i] != matches[i - 1]) {
+                found.add(employees[matches[i]]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return How many employees are indexed
+     */
+    public synchronized int size() {
+        return slotsByNumber.size();
+    }
+
+    private int addSlot(Employee employee, String text) {
+        if (slotCount == employees.length) {
+            employees = Arrays.copyOf(employees, slotCount * 2);
+            searchText = Arrays.copyOf(searchText, slotCount * 2);
+        }
+        employees[slotCount] = employee;
+        searchText[slotCount] = text;
+        slotsByNumber.put(employee.getEmployeeNumber(), slotCount);
+        return slotCount++;
+    }
+
+    // Rebuilds once stale entries outnumber live ones, so postings never grow unbounded
+    private void rebuildIfStale() {
+        if (staleEntries <= Math.max(64, slotsByNumber.size())) {
+            return;
+        }
+        Employee[] live = new Employee[slotsByNumber.size()];
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (employees[slot] != null) {
+                live[count++] = employees[slot];
+            }
+        }
+        Arrays.fill(employees, 0, slotCount, null);
+        Arrays.fill(searchText, 0, slotCount, null);
+        slotCount = 0;
+        slotsByNumber.clear();
+        postingsByGram.clear();
+        staleEntries = 0;
+        for (Employee employee : live) {
+            put(employee);
+        }
+    }
+
+    private static String searchTextOf(Employee employee) {
+        return lower(employee.getEmployeeNumber()) + FIELD_SEPARATOR
+                + lower(employee.getLastName()) + FIELD_SEPARATOR
+                + lower(employee.getFirstName()) + FIELD_SEPARATOR
+                + lower(employee.getPosition());
+    }
+
+    private static String lower(String field) {
+        return field == null ? "" : field.toLowerCase();
+    }
+
+    // Every window of GRAM_LENGTH characters that stays within one field
+    private static Set<String> gramsOf(String text) {
+        Set<String> grams = new HashSet<>();
+        int fieldStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == FIELD_SEPARATOR) {
+                fieldStart = i + 1;
+            } else if (i + 1 - fieldStart >= GRAM_LENGTH) {
+                grams.add(text.substring(i + 1 - GRAM_LENGTH, i + 1));
+            }
+        }
+        return grams;
+    }
+
+    // The slots whose text contains one trigram
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
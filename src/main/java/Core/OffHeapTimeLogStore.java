@@ -0,0 +1,272 @@
+package Core;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Time logs kept in native memory with the Foreign Function &amp; Memory API, so the
+ * history takes no Java heap. Each row is
+ * a 12-byte record in one {@link MemorySegment}:
+ * <pre>
+ *   int   employee id (from the shared {@link EmployeeIdDictionary})
+ *   int   epoch day (Integer.MIN_VALUE when there is no date)
+ *   short minute of day of time in (-1 when missing)
+ *   short minute of day of time out (-1 when missing)
+ * </pre>
+ * Segments come from automatic arenas, so a segment outgrown by a resize is freed once
+ * the garbage collector finds it unreachable; no reader can see a closed segment.
+ * Same rules as {@link ColumnarTimeLogStore}: writes synchronize on the store, rows are
+ * read-only TimeLogs, and snapshots share the segment until the next removal.
+ */
+public class OffHeapTimeLogStore extends AbstractList<TimeLog> implements TimeLogStore, RandomAccess {
+    private static final long ROW_BYTES = 12;
+    private static final long DAY_OFFSET = 4;
+    private static final long IN_OFFSET = 8;
+    private static final long OUT_OFFSET = 10;
+
+    private static final EmployeeIdDictionary DICTIONARY = EmployeeIdDictionary.shared();
+
+    private MemorySegment rows;
+    private int capacity;
+    private int size;
+    // Set while a snapshot may still read the current segment
+    private boolean shared;
+    // Told about every write once attached, under the store's lock
+    private TimeLogIndex index;
+
+    public OffHeapTimeLogStore(int capacity) {
+        this.capacity = Math.max(capacity, 16);
+        this.rows = Arena.ofAuto().allocate(this.capacity * ROW_BYTES, Long.BYTES);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public TimeLog get(int row) {
+        long offset = offset(row);
+        return ColumnarTimeLogStore.view(rows.get(ValueLayout.JAVA_INT, offset),
+                rows.get(ValueLayout.JAVA_INT, offset + DAY_OFFSET),
+                rows.get(ValueLayout.JAVA_SHORT, offset + IN_OFFSET),
+                rows.get(ValueLayout.JAVA_SHORT, offset + OUT_OFFSET));
+    }
+
+    @Override
+    public synchronized boolean add(TimeLog timeLog) {
+        if (size == capacity) {
+            grow(size + 1);
+        }
+        long offset = size * ROW_BYTES;
+        rows.set(ValueLayout.JAVA_INT, offset, timeLog.getEmployeeId());
+        rows.set(ValueLayout.JAVA_INT, offset + DAY_OFFSET, ColumnarTimeLogStore.dayOf(timeLog.getDate()));
+        rows.set(ValueLayout.JAVA_SHORT, offset + IN_OFFSET, ColumnarTimeLogStore.minuteOf(timeLog.getTimeIn()));
+        rows.set(ValueLayout.JAVA_SHORT, offset + OUT_OFFSET, ColumnarTimeLogStore.minuteOf(timeLog.getTimeOut()));
+        size++;
+        modCount++;
+        if (index != null) {
+            index.add(timeLog);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends TimeLog> timeLogs) {
+        if (size + timeLogs.size() > capacity) {
+            grow(size + timeLogs.size());
+        }
+        for (TimeLog timeLog : timeLogs) {
+            add(timeLog);
+        }
+        return !timeLogs.isEmpty();
+    }
+
+    @Override
+    public synchronized TimeLog remove(int row) {
+        TimeLog removed = get(row);
+        unshare();
+        MemorySegment.copy(rows, (row + 1) * ROW_BYTES, rows, row * ROW_BYTES, (size - row - 1) * ROW_BYTES);
+        size--;
+        modCount++;
+        reindex();
+        return removed;
+    }
+
+    @Override
+    public synchronized boolean removeIf(Predicate<? super TimeLog> filter) {
+        unshare();
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (!filter.test(get(row))) {
+                moveRow(row, kept++);
+            }
+        }
+        boolean removed = truncate(kept);
+        if (removed) {
+            reindex();
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized boolean removeEmployee(String employeeNumber) {
+        int id = DICTIONARY.find(employeeNumber);
+        if (id == EmployeeIdDictionary.UNKNOWN) {
+            return false;
+        }
+        unshare();
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (rows.get(ValueLayout.JAVA_INT, row * ROW_BYTES) != id) {
+                moveRow(row, kept++);
+            }
+        }
+        boolean removed = truncate(kept);
+        if (removed && index != null) {
+            index.removeEmployee(employeeNumber);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        unshare();
+        size = 0;
+        modCount++;
+        reindex();
+    }
+
+    @Override
+    public synchronized List<TimeLog> snapshot() {
+        shared = true;
+        return new Snapshot(rows, size);
+    }
+
+    @Override
+    public synchronized void attachIndex(TimeLogIndex index) {
+        this.index = index;
+        reindex();
+    }
+
+    @Override
+    public String getEmployeeNumber(int row) {
+        return DICTIONARY.numberOf(getEmployeeId(row));
+    }
+
+    @Override
+    public int getEmployeeId(int row) {
+        return rows.get(ValueLayout.JAVA_INT, offset(row));
+    }
+
+    @Override
+    public int getEpochDay(int row) {
+        return rows.get(ValueLayout.JAVA_INT, offset(row) + DAY_OFFSET);
+    }
+
+    @Override
+    public int getMinuteIn(int row) {
+        return rows.get(ValueLayout.JAVA_SHORT, offset(row) + IN_OFFSET);
+    }
+
+    @Override
+    public int getMinuteOut(int row) {
+        return rows.get(ValueLayout.JAVA_SHORT, offset(row) + OUT_OFFSET);
+    }
+
+    /**
+     * @return Bytes of native memory reserved for rows
+     */
+    public long getNativeBytes() {
+        return rows.byteSize();
+    }
+
+    // Removals other than a whole employee are rare, so the index is simply rebuilt
+    // (holding its lock, so no query sees it half full)
+    private void reindex() {
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            index.clear();
+            for (int row = 0; row < size; row++) {
+                index.add(get(row));
+            }
+        }
+    }
+
+    private void moveRow(int from, int to) {
+        if (from != to) {
+            MemorySegment.copy(rows, from * ROW_BYTES, rows, to * ROW_BYTES, ROW_BYTES);
+        }
+    }
+
+    private boolean truncate(int newSize) {
+        if (newSize == size) {
+            return false;
+        }
+        size = newSize;
+        modCount++;
+        return true;
+    }
+
+    private void grow(int minCapacity) {
+        copyRows(Math.max(minCapacity, capacity + (capacity >> 1)));
+    }
+
+    // Rows a snapshot can see are never overwritten: move to a private copy first
+    private void unshare() {
+        if (shared) {
+            copyRows(capacity);
+        }
+    }
+
+    private void copyRows(int newCapacity) {
+        MemorySegment copy = Arena.ofAuto().allocate(newCapacity * ROW_BYTES, Long.BYTES);
+        MemorySegment.copy(rows, 0, copy, 0, size * ROW_BYTES);
+        rows = copy;
+        capacity = newCapacity;
+        shared = false;
+    }
+
+    private long offset(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return row * ROW_BYTES;
+    }
+
+    // The first rows of a segment, which the store no longer writes to
+    private static final class Snapshot extends AbstractList<TimeLog> implements RandomAccess {
+        private final MemorySegment rows;
+        private final int size;
+
+        Snapshot(MemorySegment rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public TimeLog get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            long offset = row * ROW_BYTES;
+            return ColumnarTimeLogStore.view(rows.get(ValueLayout.JAVA_INT, offset),
+                    rows.get(ValueLayout.JAVA_INT, offset + DAY_OFFSET),
+                    rows.get(ValueLayout.JAVA_SHORT, offset + IN_OFFSET),
+                    rows.get(ValueLayout.JAVA_SHORT, offset + OUT_OFFSET));
+        }
+    }
+}
@@ -4,6 +4,7 @@ import Calculators.BasicPayCalculator;
 import Calculators.DeductionsCalculator;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class PayrollCalculator {
     private BasicPayCalculator basicPayCalculator;
@@ -18,6 +19,10 @@ public class PayrollCalculator {
         return basicPayCalculator.calculateBasicPay(employee, timeLogs);
     }
 
+    public double calculateGrossPay(Employee employee, Stream<TimeLog> timeLogs) {
+        return basicPayCalculator.calculateBasicPay(employee, timeLogs);
+    }
+
     public double calculateSSSContribution(double grossPay) {
         return deductionsCalculator.calculateSSSContribution(grossPay);
     }
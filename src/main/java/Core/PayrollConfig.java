@@ -0,0 +1,221 @@
+package Core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Central place for tunable settings. Each setting is read from a system property
+ * (e.g. -Dpayroll.attendance.loadMode=parallel) and falls back to a default.
+ */
+public final class PayrollConfig {
+    // How attendance files are parsed: "sequential" or "parallel"
+    public static final String ATTENDANCE_LOAD_MODE = "payroll.attendance.loadMode";
+
+    // Where derived files are kept: the attendance snapshot, the employee change log,
+    // backups and attendance segments (default: the configured data directory)
+    public static final String CACHE_DIR = "payroll.cache.dir";
+
+    // Set to false to always parse the attendance CSV instead of using the binary snapshot
+    public static final String ATTENDANCE_SNAPSHOT = "payroll.attendance.snapshot";
+
+    // Directory holding the employee and attendance files that are read and written
+    public static final String DATA_DIR = "payroll.data.dir";
+
+    // When appended attendance rows are forced to disk: "always", "interval" or "batch"
+    public static final String ATTENDANCE_FSYNC = "payroll.attendance.fsync";
+
+    // How often the "interval" fsync policy forces appended rows to disk
+    public static final String ATTENDANCE_FSYNC_INTERVAL_MILLIS = "payroll.attendance.fsyncIntervalMillis";
+
+    // Punch ingestion queue: how many punches may wait, how many are written per batch,
+    // and how long the writer waits for a batch to fill before writing it
+    public static final String PUNCH_QUEUE_CAPACITY = "payroll.punch.queueCapacity";
+    public static final String PUNCH_BATCH_SIZE = "payroll.punch.batchSize";
+    public static final String PUNCH_FLUSH_INTERVAL_MILLIS = "payroll.punch.flushIntervalMillis";
+
+    // How many logged employee changes trigger folding the log back into the employee file
+    public static final String EMPLOYEE_LOG_COMPACT_THRESHOLD = "payroll.employee.logCompactThreshold";
+
+    // Months of attendance to keep in the attendance file; older months are moved to
+    // compact archives after the time logs load (unset: never archive)
+    public static final String ATTENDANCE_ARCHIVE_AFTER_MONTHS = "payroll.attendance.archiveAfterMonths";
+
+    // Where employees and time logs are stored: "tsv" (the data files) or "jdbc" (embedded database)
+    public static final String STORAGE_BACKEND = "payroll.storage.backend";
+
+    // JDBC URL of the database used by the "jdbc" backend (default: an H2 file in the
+    // configured data directory, else in the working directory)
+    public static final String STORAGE_JDBC_URL = "payroll.storage.jdbcUrl";
+
+    // Where loaded time logs are kept: "heap" (primitive arrays) or "offheap" (native memory)
+    public static final String TIME_LOG_STORE = "payroll.attendance.store";
+
+    public enum LoadMode {
+        SEQUENTIAL,
+        PARALLEL
+    }
+
+    public enum FsyncPolicy {
+        ALWAYS,   // every append is on disk before it returns
+        INTERVAL, // appends are forced in the background every few milliseconds
+        BATCH     // the writer forces once per batch of appends
+    }
+
+    public enum StorageBackend {
+        TSV,
+        JDBC
+    }
+
+    public enum TimeLogStoreType {
+        HEAP,
+        OFFHEAP
+    }
+
+    private PayrollConfig() {
+    }
+
+    public static LoadMode getAttendanceLoadMode() {
+        String value = System.getProperty(ATTENDANCE_LOAD_MODE, "sequential");
+        try {
+            return LoadMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown attendance load mode '" + value + "', using sequential");
+            return LoadMode.SEQUENTIAL;
+        }
+    }
+
+    public static FsyncPolicy getAttendanceFsyncPolicy() {
+        String value = System.getProperty(ATTENDANCE_FSYNC, "always");
+        try {
+            return FsyncPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown attendance fsync policy '" + value + "', using always");
+            return FsyncPolicy.ALWAYS;
+        }
+    }
+
+    public static StorageBackend getStorageBackend() {
+        String value = System.getProperty(STORAGE_BACKEND, "tsv");
+        try {
+            return StorageBackend.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown storage backend '" + value + "', using tsv");
+            return StorageBackend.TSV;
+        }
+    }
+
+    public static TimeLogStoreType getTimeLogStoreType() {
+        String value = System.getProperty(TIME_LOG_STORE, "heap");
+        try {
+            return TimeLogStoreType.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown time log store '" + value + "', using heap");
+            return TimeLogStoreType.HEAP;
+        }
+    }
+
+    /**
+     * @return The configured JDBC URL, else the H2 database file {@link #getDefaultDatabaseFile()}
+     */
+    public static String getStorageJdbcUrl() {
+        String value = System.getProperty(STORAGE_JDBC_URL);
+        if (value != null && !value.isBlank()) {
+            return value.trim();
+        }
+        return "jdbc:h2:file:" + getDefaultDatabaseFile();
+    }
+
+    /**
+     * @return The H2 database used when no JDBC URL is set (H2 adds ".mv.db"): in the
+     *         configured data directory, else in the working directory, never in the
+     *         resource tree
+     */
+    public static Path getDefaultDatabaseFile() {
+        Path configured = getConfiguredDataDirectory();
+        Path base = configured != null ? configured : Paths.get(System.getProperty("user.dir"));
+        return base.toAbsolutePath().resolve("payroll-db");
+    }
+
+    public static long getAttendanceFsyncIntervalMillis() {
+        return getPositiveLong(ATTENDANCE_FSYNC_INTERVAL_MILLIS, 1000);
+    }
+
+    public static int getPunchQueueCapacity() {
+        return (int) Math.min(Integer.MAX_VALUE, getPositiveLong(PUNCH_QUEUE_CAPACITY, 8192));
+    }
+
+    public static int getPunchBatchSize() {
+        return (int) Math.min(Integer.MAX_VALUE, getPositiveLong(PUNCH_BATCH_SIZE, 256));
+    }
+
+    public static long getPunchFlushIntervalMillis() {
+        return getPositiveLong(PUNCH_FLUSH_INTERVAL_MILLIS, 2);
+    }
+
+    public static int getEmployeeLogCompactThreshold() {
+        return (int) Math.min(Integer.MAX_VALUE, getPositiveLong(EMPLOYEE_LOG_COMPACT_THRESHOLD, 100));
+    }
+
+    /**
+     * @return How many recent months stay in the attendance file, or 0 to never archive
+     */
+    public static int getAttendanceArchiveAfterMonths() {
+        return (int) Math.min(Integer.MAX_VALUE, getPositiveLong(ATTENDANCE_ARCHIVE_AFTER_MONTHS, 0));
+    }
+
+    /**
+     * @return The configured cache directory, else the configured data directory, else
+     *         .payroll-cache in the working directory. Derived files never go into the
+     *         resource tree that the default data directory points at.
+     */
+    public static Path getCacheDirectory() {
+        String value = System.getProperty(CACHE_DIR);
+        if (value != null && !value.isBlank()) {
+            return Paths.get(value);
+        }
+        Path configured = getConfiguredDataDirectory();
+        return configured != null ? configured : Paths.get(System.getProperty("user.dir"), ".payroll-cache");
+    }
+
+    public static boolean isAttendanceSnapshotEnabled() {
+        return Boolean.parseBoolean(System.getProperty(ATTENDANCE_SNAPSHOT, "true"));
+    }
+
+    /**
+     * @return The configured data directory, else src/main/resources when running from
+     *         the project directory, else null (use the read-only classpath copies)
+     */
+    public static Path getDataDirectory() {
+        Path configured = getConfiguredDataDirectory();
+        if (configured != null) {
+            return configured;
+        }
+        Path resources = Paths.get(System.getProperty("user.dir"), "src", "main", "resources");
+        return Files.isDirectory(resources) ? resources : null;
+    }
+
+    // The data directory set with -Dpayroll.data.dir, or null
+    private static Path getConfiguredDataDirectory() {
+        String value = System.getProperty(DATA_DIR);
+        return value == null || value.isBlank() ? null : Paths.get(value.trim());
+    }
+
+    // Reads a positive whole number, falling back to the default if it is missing or invalid
+    private static long getPositiveLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the warning below
+        }
+        System.err.println("Invalid value '" + value + "' for " + property + ", using " + defaultValue);
+        return defaultValue;
+    }
+}
@@ -0,0 +1,166 @@
+package Core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of the employees and time logs at one moment. PayrollSystem swaps
+ * in a new snapshot on every change, so a reader that holds one can run a whole payroll
+ * or report without locks and without seeing a half-applied edit.
+ *
+ * Each snapshot has a version one higher than the one it replaced. Employees are a
+ * shared base list and map plus a small overlay of the edits made since the base was
+ * built: an edit copies only the overlay, and once the overlay outgrows the square root
+ * of the base the two are merged into a new base, so an edit costs O(sqrt n) amortized
+ * instead of a copy of every employee. The employee list is assembled on first use and
+ * kept. Time logs come from {@link TimeLogStore#snapshot()}, which does not copy.
+ */
+public final class PayrollSnapshot {
+    private static final int MIN_OVERLAY = 32;
+
+    private final long version;
+    private final Base base;
+    // Base employees replaced in their place, or mapped to null when removed from it
+    private final Map<String, Employee> replaced;
+    // Employees after the base ones, in the order they were added
+    private final LinkedHashMap<String, Employee> appended;
+    private final List<TimeLog> timeLogs;
+    // Assembled by getEmployees; racing readers build equal lists
+    private volatile List<Employee> employees;
+
+    private PayrollSnapshot(long version, Base base, Map<String, Employee> replaced,
+                            LinkedHashMap<String, Employee> appended, List<TimeLog> timeLogs) {
+        this.version = version;
+        this.base = base;
+        this.replaced = replaced;
+        this.appended = appended;
+        this.timeLogs = timeLogs;
+        if (replaced.isEmpty() && appended.isEmpty()) {
+            this.employees = base.employees;
+        }
+    }
+
+    /**
+     * @return A snapshot with no employees and no time logs, version 0
+     */
+    static PayrollSnapshot empty() {
+        return new PayrollSnapshot(0, new Base(List.of()), Map.of(), new LinkedHashMap<>(), List.of());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The employees in list order (unmodifiable)
+     */
+    public List<Employee> getEmployees() {
+        List<Employee> assembled = employees;
+        if (assembled == null) {
+            employees = assembled = Collections.unmodifiableList(merge());
+        }
+        return assembled;
+    }
+
+    /**
+     * @param employeeNumber The employee number to look up
+     * @return The employee, or null if there is none in this snapshot
+     */
+    public Employee findEmployee(String employeeNumber) {
+        Employee employee = appended.get(employeeNumber);
+        if (employee != null) {
+            return employee;
+        }
+        if (replaced.containsKey(employeeNumber)) {
+            return replaced.get(employeeNumber);
+        }
+        return base.byNumber.get(employeeNumber);
+    }
+
+    /**
+     * @return The time logs (unmodifiable)
+     */
+    public List<TimeLog> getTimeLogs() {
+        return timeLogs;
+    }
+
+    PayrollSnapshot withEmployees(List<Employee> employees) {
+        return new PayrollSnapshot(version + 1, new Base(new ArrayList<>(employees)), Map.of(),
+                new LinkedHashMap<>(), timeLogs);
+    }
+
+    /**
+     * Applies a batch of changes to a copy of the overlay. Upserts replace the employee
+     * with the same number in place or go at the end; removals win over upserts.
+     */
+    PayrollSnapshot withChanges(List<Employee> upserts, Collection<String> removedNumbers) {
+        Map<String, Employee> changedInPlace = new HashMap<>(replaced);
+        LinkedHashMap<String, Employee> changedAtEnd = new LinkedHashMap<>(appended);
+        for (Employee employee : upserts) {
+            String employeeNumber = employee.getEmployeeNumber();
+            boolean inBasePlace = base.byNumber.containsKey(employeeNumber)
+                    && !(changedInPlace.containsKey(employeeNumber) && changedInPlace.get(employeeNumber) == null);
+            if (inBasePlace) {
+                changedInPlace.put(employeeNumber, employee);
+            } else {
+                // Re-putting keeps the place of an employee already at the end
+                changedAtEnd.put(employeeNumber, employee);
+            }
+        }
+        for (String employeeNumber : removedNumbers) {
+            changedAtEnd.remove(employeeNumber);
+            if (base.byNumber.containsKey(employeeNumber)) {
+                changedInPlace.put(employeeNumber, null);
+            }
+        }
+
+        if (changedInPlace.size() + changedAtEnd.size() > Math.max(MIN_OVERLAY, (int) Math.sqrt(base.employees.size()))) {
+            return new PayrollSnapshot(version + 1, new Base(merge(base, changedInPlace, changedAtEnd)), Map.of(),
+                    new LinkedHashMap<>(), timeLogs);
+        }
+        return new PayrollSnapshot(version + 1, base, changedInPlace, changedAtEnd, timeLogs);
+    }
+
+    PayrollSnapshot withTimeLogs(List<TimeLog> timeLogs) {
+        return new PayrollSnapshot(version + 1, base, replaced, appended, timeLogs);
+    }
+
+    private List<Employee> merge() {
+        return merge(base, replaced, appended);
+    }
+
+    private static List<Employee> merge(Base base, Map<String, Employee> replaced, Map<String, Employee> appended) {
+        List<Employee> merged = new ArrayList<>(base.employees.size() + appended.size());
+        for (Employee employee : base.employees) {
+            String employeeNumber = employee.getEmployeeNumber();
+            if (!replaced.containsKey(employeeNumber)) {
+                merged.add(employee);
+            } else if (replaced.get(employeeNumber) != null) {
+                merged.add(replaced.get(employeeNumber));
+            }
+        }
+        merged.addAll(appended.values());
+        return merged;
+    }
+
+    // The employee list and its lookup map, shared by every snapshot until the next merge
+    private static final class Base {
+        final List<Employee> employees;
+        final Map<String, Employee> byNumber;
+
+        // Takes ownership of the list
+        Base(List<Employee> employees) {
+            Map<String, Employee> byNumber = new HashMap<>(employees.size() * 2);
+            for (Employee employee : employees) {
+                byNumber.put(employee.getEmployeeNumber(), employee);
+            }
+            this.employees = Collections.unmodifiableList(employees);
+            this.byNumber = byNumber;
+        }
+    }
+}
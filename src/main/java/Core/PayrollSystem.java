@@ -1,127 +1,553 @@
 package Core;
 
+import DataManager.DataChangeListener;
+import DataManager.DataFileWatcher;
 import DataManager.EmployeeDataManager;
+import DataManager.PunchIngestionQueue;
+import FileReaders.LoadProgressListener;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * The in-memory payroll data shared by every window, clerk and time clock feed in the
+ * process. Safe to use from many threads:
+ *
+ * - Reads go to an immutable {@link PayrollSnapshot} and never lock.
+ * - Changes to one employee (add, update, delete, punch) hold that employee's lock
+ *   stripe, so memory and the files see them in the same order. Employees on different
+ *   stripes are changed in parallel.
+ * - File commits are serialized by the storage backend, which is shared by all
+ *   EmployeeDataManagers.
+ * - A reload of all employees waits for the changes in progress and holds off new ones.
+ */
 public class PayrollSystem {
-    private List<Employee> employees;
-    private List<TimeLog> timeLogs;
+    // Time logs are loaded on this background thread so the UI can show employees right away
+    private static final ExecutorService TIME_LOG_LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "time-log-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int LOCK_STRIPES = 64;
+    // How long a flush waits for queued punches to be written
+    private static final long PUNCH_FLUSH_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    // Employee number hash -> lock serializing that employee's changes
+    private final Object[] employeeLocks = new Object[LOCK_STRIPES];
+    // Shared by per-employee changes; held exclusively while all employees are replaced
+    private final ReentrantReadWriteLock reloadLock = new ReentrantReadWriteLock();
+    // Employees with a delete in progress, whose punches are turned away
+    private final Set<String> deletingEmployees = ConcurrentHashMap.newKeySet();
+
+    // What readers see: replaced as a whole on every change, never modified in place
+    private final AtomicReference<PayrollSnapshot> snapshot = new AtomicReference<>(PayrollSnapshot.empty());
+    // Trigram index behind searchEmployees, updated with the same mutations
+    private volatile EmployeeSearchIndex searchIndex;
+    // The repository's live time log store; readers get snapshots of it
+    private volatile TimeLogStore timeLogs;
+    // Attached to each loaded store, which keeps it in step with punches, appends and deletes
+    private volatile TimeLogIndex timeLogIndex;
+    private volatile CompletableFuture<List<TimeLog>> timeLogsLoad;
+    private final List<LoadProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+    private final List<DataChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private DataFileWatcher fileWatcher;
+    private PunchIngestionQueue punchQueue;
     private EmployeeDataManager dataManager;
 
     public PayrollSystem() {
-        this.employees = new ArrayList<>();
-        this.timeLogs = new ArrayList<>();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            employeeLocks[i] = new Object();
+        }
+        this.searchIndex = new EmployeeSearchIndex();
+        this.timeLogs = TimeLogStore.create(0);
+        this.timeLogIndex = new TimeLogIndex();
         this.dataManager = new EmployeeDataManager();
 
         // Initialize with data from files
         loadDataFromFiles();
     }
 
+    // Employees are loaded immediately; time logs keep loading in the background
     private void loadDataFromFiles() {
-        this.employees = dataManager.getEmployees();
-        this.timeLogs = dataManager.getTimeLogs();
+        publishEmployees(dataManager.getEmployees());
+        startTimeLogLoad(false);
+
+        int keepMonths = PayrollConfig.getAttendanceArchiveAfterMonths();
+        if (keepMonths > 0) {
+            // Runs on the loader thread after the load, so it never delays startup
+            YearMonth before = YearMonth.now().minusMonths(keepMonths - 1);
+            timeLogsLoad.thenRunAsync(() -> dataManager.archiveClosedPeriods(before), TIME_LOG_LOADER);
+        }
+    }
+
+    // A reload re-reads the attendance file; otherwise the shared cached copy is used
+    private void startTimeLogLoad(boolean reload) {
+        LoadProgressListener progress = (loaded, total) -> {
+            for (LoadProgressListener listener : progressListeners) {
+                listener.onProgress(loaded, total);
+            }
+        };
+
+        // Loads run one at a time on the loader thread, so the latest refresh always wins.
+        // The list is published before the future completes, so joiners always see it.
+        timeLogsLoad = CompletableFuture.supplyAsync(() -> {
+            TimeLogStore loaded = reload
+                    ? dataManager.reloadTimeLogs(progress)
+                    : dataManager.getTimeLogs(progress);
+            timeLogIndex = indexOf(loaded);
+            timeLogs = loaded;
+            publishTimeLogs();
+            return loaded;
+        }, TIME_LOG_LOADER);
+        timeLogsLoad.exceptionally(error -> {
+            System.err.println("Error loading time logs: " + error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Blocks until the in-flight time log load (if any) has finished
+     */
+    public void awaitTimeLogs() {
+        try {
+            timeLogsLoad.join();
+        } catch (RuntimeException e) {
+            // Already reported when the load failed; callers see whatever was loaded before
+        }
+    }
+
+    /**
+     * @return true once the time logs from the latest load are available
+     */
+    public boolean isTimeLogsLoaded() {
+        return timeLogsLoad.isDone();
+    }
+
+    /**
+     * Runs an action once the time logs are loaded (immediately if they already are).
+     * The action runs on the loader thread, so GUI code should hop to the EDT.
+     * @param action The action to run
+     * @return A future that completes after the action has run
+     */
+    public CompletableFuture<Void> whenTimeLogsLoaded(Runnable action) {
+        return timeLogsLoad.handle((loaded, error) -> null).thenRun(action);
+    }
+
+    public void addLoadProgressListener(LoadProgressListener listener) {
+        progressListeners.add(listener);
+    }
+
+    public void removeLoadProgressListener(LoadProgressListener listener) {
+        progressListeners.remove(listener);
+    }
+
+    public void addDataChangeListener(DataChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeDataChangeListener(DataChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Starts applying changes that other processes (time clock, HR scripts) make to the
+     * data files as deltas, and forwards them to the registered DataChangeListeners.
+     * Waits for the initial time log load so the watcher starts from the loaded state.
+     */
+    public void startWatchingFiles() {
+        // Outside the monitor, so stopWatchingFiles is not held up by the load
+        awaitTimeLogs();
+        synchronized (this) {
+            startFileWatcher();
+        }
+    }
+
+    // Caller holds this
+    private void startFileWatcher() {
+        if (fileWatcher != null) {
+            return;
+        }
+
+        Path employeeFile = dataManager.getEmployeeFilePath();
+        Path timeLogFile = dataManager.getTimeLogFilePath();
+        if (employeeFile == null || timeLogFile == null) {
+            System.err.println("Data files are not on disk, file watching is disabled");
+            return;
+        }
+
+        DataFileWatcher watcher = new DataFileWatcher(employeeFile, timeLogFile, new DataChangeListener() {
+            @Override
+            public void employeesChanged(List<Employee> added, List<Employee> updated, List<String> removed) {
+                dataManager.applyEmployeeChanges(added, updated, removed);
+                applyEmployeeChanges(added, updated, removed);
+            }
+
+            @Override
+            public void timeLogsAppended(List<TimeLog> appended) {
+                // The time log list is the repository's shared copy, so this updates it
+                // and the index attached to it
+                awaitTimeLogs();
+                dataManager.applyAppendedTimeLogs(appended);
+                publishTimeLogs();
+                for (DataChangeListener listener : changeListeners) {
+                    listener.timeLogsAppended(appended);
+                }
+            }
+
+            @Override
+            public void timeLogsReloaded() {
+                for (DataChangeListener listener : changeListeners) {
+                    listener.timeLogsReloaded();
+                }
+            }
+        }, () -> {
+            startTimeLogLoad(true);
+            awaitTimeLogs();
+        });
+
+        try {
+            watcher.start();
+            fileWatcher = watcher;
+        } catch (IOException e) {
+            System.err.println("Could not watch data files: " + e.getMessage());
+        }
+    }
+
+    public synchronized void stopWatchingFiles() {
+        if (fileWatcher != null) {
+            fileWatcher.close();
+            fileWatcher = null;
+        }
+    }
+
+    // Our own writes are reported by the watcher too, so adds are applied as upserts
+    private void applyEmployeeChanges(List<Employee> added, List<Employee> updated, List<String> removed) {
+        List<Employee> upserts = new ArrayList<>(added.size() + updated.size());
+        upserts.addAll(added);
+        upserts.addAll(updated);
+        reloadLock.readLock().lock();
+        try {
+            snapshot.updateAndGet(current -> current.withChanges(upserts, removed));
+            for (Employee employee : upserts) {
+                searchIndex.put(employee);
+            }
+            for (String employeeNumber : removed) {
+                searchIndex.remove(employeeNumber);
+            }
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+
+        for (DataChangeListener listener : changeListeners) {
+            listener.employeesChanged(added, updated, removed);
+        }
+    }
+
+    private void replaceOrAddEmployee(Employee employee) {
+        snapshot.updateAndGet(current -> current.withChanges(List.of(employee), List.of()));
+        searchIndex.put(employee);
     }
 
-    // Add new employee
+    // Publishes the time logs as they are now; a newer call always wins over an older one
+    private void publishTimeLogs() {
+        snapshot.updateAndGet(current -> current.withTimeLogs(timeLogs.snapshot()));
+    }
+
+    // The store feeds the index every later write itself, so rows written while it was
+    // loading are indexed once, whether the load read them or the store received them
+    private static TimeLogIndex indexOf(TimeLogStore timeLogs) {
+        TimeLogIndex index = new TimeLogIndex();
+        timeLogs.attachIndex(index);
+        return index;
+    }
+
+    // Add new employee; fails if the employee number is already taken
     public boolean addEmployee(Employee employee) {
-        // Add to memory
-        employees.add(employee);
-
-        // Persist to file
-        return dataManager.updateEmployee(employee);
-    }
-
-    // Add or replace employee in memory
-    public void updateEmployee(String employeeNumber, Employee updatedEmployee) {
-        // First, see if the employee exists
-        boolean found = false;
-        for (int i = 0; i < employees.size(); i++) {
-            if (employees.get(i).getEmployeeNumber().equals(employeeNumber)) {
-                employees.set(i, updatedEmployee);
-                found = true;
-                break;
+        reloadLock.readLock().lock();
+        try {
+            synchronized (lockFor(employee.getEmployeeNumber())) {
+                // Persist to file (the repository checks for duplicates against its cache)
+                if (!dataManager.addEmployee(employee)) {
+                    return false;
+                }
+
+                // Add to memory
+                replaceOrAddEmployee(employee);
+                return true;
+            }
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    // Add or replace employee in memory and in the file
+    public boolean updateEmployee(String employeeNumber, Employee updatedEmployee) {
+        reloadLock.readLock().lock();
+        try {
+            synchronized (lockFor(updatedEmployee.getEmployeeNumber())) {
+                // Update in file (if not found, it is added as new)
+                if (!dataManager.updateEmployee(updatedEmployee)) {
+                    return false;
+                }
+
+                // Update in memory
+                replaceOrAddEmployee(updatedEmployee);
+                return true;
             }
+        } finally {
+            reloadLock.readLock().unlock();
         }
+    }
 
-        // If not found, add as new
-        if (!found) {
-            employees.add(updatedEmployee);
+    // Delete employee and their time logs from the files, then from memory
+    public boolean deleteEmployee(String employeeNumber) {
+        // From here on recordPunch turns the employee's punches away, and the ones
+        // accepted earlier are written before their rows are deleted. The wait happens
+        // outside the stripe so it does not hold up the other employees on it. Marking
+        // under the stripe means any punch that got past the check is already queued.
+        boolean marked;
+        synchronized (lockFor(employeeNumber)) {
+            marked = deletingEmployees.add(employeeNumber);
         }
+        try {
+            if (!flushPunches()) {
+                System.err.println("Queued punches may not all be written before deleting " + employeeNumber);
+            }
+
+            reloadLock.readLock().lock();
+            try {
+                synchronized (lockFor(employeeNumber)) {
+                    // Delete from file; the repository drops the time logs (and their index) too
+                    boolean deleted = dataManager.deleteEmployee(employeeNumber);
+                    if (!deleted && dataManager.getEmployee(employeeNumber) != null) {
+                        return false;
+                    }
 
-        // Update in file
-        dataManager.updateEmployee(updatedEmployee);
+                    // Remove from memory once the employee is off file, even if some of
+                    // their time logs could not be removed
+                    snapshot.updateAndGet(current -> current.withChanges(List.of(), List.of(employeeNumber)));
+                    searchIndex.remove(employeeNumber);
+                    publishTimeLogs();
+                    return deleted;
+                }
+            } finally {
+                reloadLock.readLock().unlock();
+            }
+        } finally {
+            if (marked) {
+                deletingEmployees.remove(employeeNumber);
+            }
+        }
     }
 
-    // Delete employee from memory
-    public void deleteEmployee(String employeeNumber) {
-        employees.removeIf(emp -> emp.getEmployeeNumber().equals(employeeNumber));
+    /**
+     * Records a clock-in or clock-out without waiting for the disk. Punches are written
+     * in batches by a background writer and appear in the time logs once written.
+     * @param timeLog The punch to record
+     * @return false if the employee is unknown or too many punches are already waiting
+     */
+    public boolean recordPunch(TimeLog timeLog) {
+        // Holding the stripe keeps a delete from slipping in between the check and the submit
+        synchronized (lockFor(timeLog.getEmployeeNumber())) {
+            if (findEmployee(timeLog.getEmployeeNumber()) == null) {
+                System.err.println("Punch for unknown employee: " + timeLog.getEmployeeNumber());
+                return false;
+            }
+            if (deletingEmployees.contains(timeLog.getEmployeeNumber())) {
+                System.err.println("Punch for employee being deleted: " + timeLog.getEmployeeNumber());
+                return false;
+            }
+            return getPunchQueue().submit(timeLog);
+        }
+    }
 
-        // Also remove associated time logs
-        timeLogs.removeIf(log -> log.getEmployeeNumber().equals(employeeNumber));
+    private Object lockFor(String employeeNumber) {
+        int hash = employeeNumber.hashCode();
+        return employeeLocks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
 
-        // Delete from file
-        dataManager.deleteEmployee(employeeNumber);
+    /**
+     * Waits until every punch recorded so far has been written and is in the time logs
+     * @return false if some were not written in time or failed to be written
+     */
+    public boolean flushPunches() {
+        PunchIngestionQueue queue;
+        synchronized (this) {
+            queue = punchQueue;
+        }
+        if (queue == null) {
+            return true;
+        }
+        try {
+            return queue.flush(PUNCH_FLUSH_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Started on the first punch
+    private synchronized PunchIngestionQueue getPunchQueue() {
+        if (punchQueue == null) {
+            punchQueue = new PunchIngestionQueue();
+            punchQueue.setListener(new DataChangeListener() {
+                @Override
+                public void timeLogsAppended(List<TimeLog> appended) {
+                    // The repository already added them to the shared list and its index
+                    awaitTimeLogs();
+                    publishTimeLogs();
+                    for (DataChangeListener listener : changeListeners) {
+                        listener.timeLogsAppended(appended);
+                    }
+                }
+            });
+            punchQueue.start();
+        }
+        return punchQueue;
     }
 
     /**
-     * Finds an employee by their employee number
+     * Finds an employee by their employee number (a hash lookup, not a scan)
      * @param employeeNumber The employee number to search for
      * @return The found Employee object, or null if not found
      */
     public Employee findEmployee(String employeeNumber) {
-        for (Employee employee : employees) {
-            if (employee.getEmployeeNumber().equals(employeeNumber)) {
-                return employee;
-            }
-        }
-        return null;
+        return snapshot.get().findEmployee(employeeNumber);
+    }
+
+    /**
+     * Finds employees whose number, last name, first name or position contains a term,
+     * through a trigram index instead of a scan (see {@link EmployeeSearchIndex}). Safe
+     * to call off the EDT.
+     * @param term The text to look for, case-insensitive
+     * @return The matching employees in list order; all of them if the term is blank
+     */
+    public List<Employee> searchEmployees(String term) {
+        return searchIndex.search(term);
     }
 
-    // Getters and setters
+    /**
+     * The employees and time logs as of the last change. Holding on to it is how a long
+     * payroll run or report stays consistent while edits go on: it never changes, and
+     * taking it costs nothing. Time logs still loading in the background are not in it
+     * yet (see {@link #awaitTimeLogs()}).
+     * @return The current snapshot
+     */
+    public PayrollSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Getters and setters. The lists are unmodifiable snapshots, safe to iterate on any thread.
     public List<Employee> getAllEmployees() {
-        return employees;
+        return snapshot.get().getEmployees();
     }
 
     public void setEmployees(List<Employee> employees) {
-        this.employees = employees;
+        publishEmployees(employees);
     }
 
+    // Private so the constructor can call it without exposing a half-built instance
+    private void publishEmployees(List<Employee> employees) {
+        reloadLock.writeLock().lock();
+        try {
+            snapshot.updateAndGet(current -> current.withEmployees(employees));
+            this.searchIndex = EmployeeSearchIndex.build(employees);
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+    }
+
+    // Waits for the background load if it is still running
     public List<TimeLog> getTimeLogs() {
-        return timeLogs;
+        awaitTimeLogs();
+        return snapshot.get().getTimeLogs();
     }
 
+    // A plain list is copied into a store once, so publishing it later costs O(1)
     public void setTimeLogs(List<TimeLog> timeLogs) {
-        this.timeLogs = timeLogs;
+        awaitTimeLogs();
+        TimeLogStore store;
+        if (timeLogs instanceof TimeLogStore timeLogStore) {
+            store = timeLogStore;
+        } else {
+            store = TimeLogStore.create(timeLogs.size());
+            synchronized (timeLogs) {
+                store.addAll(timeLogs);
+            }
+        }
+        this.timeLogIndex = indexOf(store);
+        this.timeLogs = store;
+        publishTimeLogs();
     }
 
-    // Refresh data from files
+    /**
+     * Reads the employees and time logs from storage again, e.g. after the files were
+     * edited while nothing was watching them. Employees are replaced right away; the time
+     * logs reload in the background like the initial load.
+     */
     public void refreshData() {
-        loadDataFromFiles();
+        // Holding off employee changes keeps one made during the reload from being dropped
+        reloadLock.writeLock().lock();
+        try {
+            publishEmployees(dataManager.reloadEmployees());
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+        startTimeLogLoad(true);
     }
 
     /**
-     * Gets time logs for a specific employee within a date range
+     * Gets time logs for a specific employee within a date range. Once the time logs are
+     * loaded this is a binary search in the employee's date-sorted logs; before that only
+     * the months that overlap the range are read, so it never waits for the full load.
      * @param employeeNumber The employee number to find time logs for
      * @param startDate The start date of the range (inclusive)
      * @param endDate The end date of the range (inclusive)
      * @return A list of time logs for the employee within the date range
      */
     public List<TimeLog> getEmployeeTimeLogs(String employeeNumber, LocalDate startDate, LocalDate endDate) {
-        List<TimeLog> employeeTimeLogs = new ArrayList<>();
-
-        for (TimeLog log : timeLogs) {
-            if (log.getEmployeeNumber().equals(employeeNumber)) {
-                LocalDate logDate = log.getDate();
-                if ((logDate.isEqual(startDate) || logDate.isAfter(startDate)) &&
-                        (logDate.isEqual(endDate) || logDate.isBefore(endDate))) {
-                    employeeTimeLogs.add(log);
-                }
-            }
+        if (isTimeLogsLoaded() && timeLogIndex != null) {
+            return timeLogIndex.find(employeeNumber, startDate, endDate);
+        }
+        try (Stream<TimeLog> logs = streamEmployeeTimeLogs(employeeNumber, startDate, endDate)) {
+            return logs.collect(Collectors.toCollection(ArrayList::new));
         }
+    }
 
-        return employeeTimeLogs;
+    /**
+     * Streams time logs for an employee within a date range straight from the monthly
+     * attendance segments that overlap it, without keeping the full history in memory.
+     * Close the stream or consume it fully when done.
+     * @param employeeNumber The employee number to find time logs for
+     * @param startDate The start date of the range (inclusive)
+     * @param endDate The end date of the range (inclusive)
+     * @return A lazily parsed stream of matching time logs
+     */
+    public Stream<TimeLog> streamEmployeeTimeLogs(String employeeNumber, LocalDate startDate, LocalDate endDate) {
+        // Looking up a number must not give it an id. One without an id yet may still be
+        // in rows not read so far, which get an id as they are parsed.
+        int employeeId = EmployeeIdDictionary.shared().find(employeeNumber);
+        if (employeeId == EmployeeIdDictionary.UNKNOWN) {
+            return dataManager.streamTimeLogs(startDate, endDate)
+                    .filter(log -> employeeNumber.equals(log.getEmployeeNumber()));
+        }
+        return dataManager.streamTimeLogs(startDate, endDate)
+                .filter(log -> log.getEmployeeId() == employeeId);
     }
-}
\ No newline at end of file
+}
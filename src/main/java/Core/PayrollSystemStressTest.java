@@ -0,0 +1,295 @@
+package Core;
+
+import DataManager.DataRepository;
+import DataManager.EmployeeDataManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Hammers one PayrollSystem from many threads, the way several HR clerks and a time
+ * clock feed would share a process:
+ *
+ * - each clerk adds, punches, updates and deletes employees of its own, and all clerks
+ *   keep overwriting a small set of shared employees
+ * - a time clock thread punches for the employees that were already on file
+ * - a reader thread walks snapshots and checks they are consistent
+ *
+ * Before any of that, every employee punches once while the time logs are still loading.
+ * Afterwards memory, the repository and the time logs must agree. Runs on a copy of the
+ * data files in a temporary directory unless -Dpayroll.data.dir is set (the employees it
+ * adds are left in that directory).
+ *
+ * Usage: PayrollSystemStressTest [clerks] [operations per clerk]
+ */
+public class PayrollSystemStressTest {
+    private static final int SHARED_EMPLOYEES = 4;
+    private static final LocalDate FIRST_PUNCH_DATE = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        int clerks = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        System.out.println("Starting PayrollSystem stress test: " + clerks + " clerks, "
+                + operations + " operations each");
+
+        if (System.getProperty(PayrollConfig.DATA_DIR) == null) {
+            Path dataDirectory = Files.createTempDirectory("payroll-stress");
+            copyResource(DataRepository.EMPLOYEE_DATA_FILE, dataDirectory);
+            copyResource(DataRepository.TIME_LOG_FILE, dataDirectory);
+            System.setProperty(PayrollConfig.DATA_DIR, dataDirectory.toString());
+        }
+        System.out.println("Data directory: " + PayrollConfig.getDataDirectory());
+
+        // Counted from the file, since punches below race the load
+        EmployeeDataManager dataManager = new EmployeeDataManager();
+        Map<String, Integer> initialLogCounts;
+        try (Stream<TimeLog> onFile = dataManager.streamTimeLogs()) {
+            initialLogCounts = countLogs(onFile.toList());
+        }
+
+        // Each punch must show up once, whether the load reads it from the file or the
+        // loaded store receives it
+        PayrollSystem payrollSystem = new PayrollSystem();
+        Map<String, AtomicInteger> acceptedPunches = new ConcurrentHashMap<>();
+        List<String> clockedEmployees = new ArrayList<>();
+        for (Employee employee : payrollSystem.getAllEmployees()) {
+            clockedEmployees.add(employee.getEmployeeNumber());
+        }
+        boolean punchedDuringLoad = !payrollSystem.isTimeLogsLoaded();
+        for (String employeeNumber : clockedEmployees) {
+            if (payrollSystem.recordPunch(punch(employeeNumber, -1))) {
+                acceptedPunches.computeIfAbsent(employeeNumber, key -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+        payrollSystem.awaitTimeLogs();
+        PayrollSnapshot initial = payrollSystem.getSnapshot();
+        System.out.println("Loaded " + clockedEmployees.size() + " employees and "
+                + initial.getTimeLogs().size() + " time logs"
+                + (punchedDuringLoad ? ", punching while they loaded" : ""));
+
+        Map<String, String> expectedLastNames = new ConcurrentHashMap<>();
+        Set<String> deletedEmployees = ConcurrentHashMap.newKeySet();
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong snapshotsChecked = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clerks + 2);
+        List<Future<?>> clerkTasks = new ArrayList<>();
+        for (int clerk = 0; clerk < clerks; clerk++) {
+            int clerkNumber = clerk;
+            clerkTasks.add(pool.submit(() -> {
+                await(start);
+                for (int op = 0; op < operations; op++) {
+                    String employeeNumber = String.format("9%02d%04d", clerkNumber, op);
+                    if (!payrollSystem.addEmployee(employee(employeeNumber, "Added", "Clerk " + clerkNumber))) {
+                        errors.add("Add failed for " + employeeNumber);
+                        continue;
+                    }
+                    for (int punch = 0; punch < 2; punch++) {
+                        if (payrollSystem.recordPunch(punch(employeeNumber, op + punch))) {
+                            acceptedPunches.computeIfAbsent(employeeNumber, key -> new AtomicInteger()).incrementAndGet();
+                        }
+                    }
+                    String lastName = "Updated" + op;
+                    if (!payrollSystem.updateEmployee(employeeNumber, employee(employeeNumber, lastName, "Clerk " + clerkNumber))) {
+                        errors.add("Update failed for " + employeeNumber);
+                    }
+                    expectedLastNames.put(employeeNumber, lastName);
+
+                    if (op % 4 == 3) {
+                        if (payrollSystem.deleteEmployee(employeeNumber)) {
+                            deletedEmployees.add(employeeNumber);
+                        } else {
+                            errors.add("Delete failed for " + employeeNumber);
+                        }
+                    }
+
+                    // Every clerk keeps editing the same few employees
+                    String shared = "8000" + (op % SHARED_EMPLOYEES);
+                    payrollSystem.updateEmployee(shared, employee(shared, "Clerk" + clerkNumber + "-" + op, "Shared"));
+                }
+            }));
+        }
+
+        Future<?> timeClock = pool.submit(() -> {
+            await(start);
+            int round = 0;
+            while (running.get()) {
+                for (String employeeNumber : clockedEmployees) {
+                    if (payrollSystem.recordPunch(punch(employeeNumber, round))) {
+                        acceptedPunches.computeIfAbsent(employeeNumber, key -> new AtomicInteger()).incrementAndGet();
+                    }
+                }
+                round++;
+                sleep(5);
+            }
+        });
+
+        Future<?> reader = pool.submit(() -> {
+            await(start);
+            long lastVersion = -1;
+            while (running.get()) {
+                PayrollSnapshot snapshot = payrollSystem.getSnapshot();
+                if (snapshot.getVersion() < lastVersion) {
+                    errors.add("Snapshot version went back from " + lastVersion + " to " + snapshot.getVersion());
+                }
+                lastVersion = snapshot.getVersion();
+                for (Employee employee : snapshot.getEmployees()) {
+                    if (snapshot.findEmployee(employee.getEmployeeNumber()) != employee) {
+                        errors.add("Snapshot " + snapshot.getVersion() + " lookup disagrees for " + employee.getEmployeeNumber());
+                    }
+                }
+                int size = snapshot.getTimeLogs().size();
+                int seen = 0;
+                for (TimeLog ignored : snapshot.getTimeLogs()) {
+                    seen++;
+                }
+                if (seen != size) {
+                    errors.add("Snapshot " + snapshot.getVersion() + " time logs changed while reading");
+                }
+                snapshotsChecked.incrementAndGet();
+            }
+        });
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Future<?> task : clerkTasks) {
+            task.get();
+        }
+        running.set(false);
+        timeClock.get();
+        reader.get();
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        if (!payrollSystem.flushPunches()) {
+            errors.add("Queued punches were not all written");
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        // Memory and the repository must agree on every employee that was touched
+        for (Map.Entry<String, String> expected : expectedLastNames.entrySet()) {
+            String employeeNumber = expected.getKey();
+            Employee inMemory = payrollSystem.findEmployee(employeeNumber);
+            Employee stored = dataManager.getEmployee(employeeNumber);
+            if (deletedEmployees.contains(employeeNumber)) {
+                if (inMemory != null || stored != null) {
+                    errors.add("Deleted employee still present: " + employeeNumber);
+                }
+            } else if (inMemory == null || stored == null
+                    || !expected.getValue().equals(inMemory.getLastName())
+                    || !expected.getValue().equals(stored.getLastName())) {
+                errors.add("Employee " + employeeNumber + " does not have its last update");
+            }
+        }
+        for (int i = 0; i < SHARED_EMPLOYEES; i++) {
+            String shared = "8000" + i;
+            Employee inMemory = payrollSystem.findEmployee(shared);
+            Employee stored = dataManager.getEmployee(shared);
+            if (inMemory == null || stored == null || !inMemory.getLastName().equals(stored.getLastName())) {
+                errors.add("Shared employee " + shared + " differs between memory and the repository");
+            }
+        }
+        if (payrollSystem.getAllEmployees().size() != dataManager.getEmployees().size()) {
+            errors.add("Memory has " + payrollSystem.getAllEmployees().size() + " employees, the repository "
+                    + dataManager.getEmployees().size());
+        }
+
+        // Every accepted punch is in the time logs, unless its employee was deleted, and
+        // the index behind getEmployeeTimeLogs holds each dated log once
+        List<TimeLog> timeLogs = payrollSystem.getTimeLogs();
+        Map<String, Integer> logCounts = countLogs(timeLogs);
+        Map<String, Integer> datedLogCounts = countLogs(timeLogs.stream().filter(log -> log.getDate() != null).toList());
+        int punches = 0;
+        for (Map.Entry<String, AtomicInteger> accepted : acceptedPunches.entrySet()) {
+            String employeeNumber = accepted.getKey();
+            punches += accepted.getValue().get();
+            int expected = deletedEmployees.contains(employeeNumber)
+                    ? 0
+                    : initialLogCounts.getOrDefault(employeeNumber, 0) + accepted.getValue().get();
+            int actual = logCounts.getOrDefault(employeeNumber, 0);
+            if (actual != expected) {
+                errors.add("Employee " + employeeNumber + " has " + actual + " time logs, expected " + expected);
+            }
+            int indexed = payrollSystem.getEmployeeTimeLogs(employeeNumber, LocalDate.MIN, LocalDate.MAX).size();
+            if (indexed != datedLogCounts.getOrDefault(employeeNumber, 0)) {
+                errors.add("Employee " + employeeNumber + " has " + indexed + " indexed time logs, expected "
+                        + datedLogCounts.getOrDefault(employeeNumber, 0));
+            }
+        }
+
+        System.out.println("Operations: " + clerks * operations + " employee rounds, " + punches
+                + " punches, " + deletedEmployees.size() + " deletes in " + elapsedMillis + " ms");
+        System.out.println("Snapshots checked while writing: " + snapshotsChecked.get());
+        for (String error : errors.stream().limit(20).toList()) {
+            System.err.println(error);
+        }
+        System.out.println("Stress test " + (errors.isEmpty() ? "PASSED" : "FAILED with " + errors.size() + " errors"));
+        System.exit(errors.isEmpty() ? 0 : 1);
+    }
+
+    private static Employee employee(String employeeNumber, String lastName, String firstName) {
+        return new Employee(employeeNumber, lastName, firstName, "01/01/1990", "Stress Test Address",
+                "000-000-000", "00-0000000-0", "000000000000", "000-000-000-000", "000000000000",
+                "Regular", "Stress Tester", "N/A", 30000, 1500, 1000, 1000, 15000, 178.57);
+    }
+
+    private static TimeLog punch(String employeeNumber, int day) {
+        return new TimeLog(employeeNumber, FIRST_PUNCH_DATE.plusDays(day), LocalTime.of(8, 0), LocalTime.of(17, 0));
+    }
+
+    private static Map<String, Integer> countLogs(List<TimeLog> timeLogs) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (TimeLog timeLog : timeLogs) {
+            counts.merge(timeLog.getEmployeeNumber(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static void copyResource(String fileName, Path directory) throws IOException {
+        try (InputStream in = PayrollSystemStressTest.class.getClassLoader().getResourceAsStream(fileName)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + fileName);
+            }
+            Files.copy(in, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
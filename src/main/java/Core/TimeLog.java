@@ -4,24 +4,41 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 public class TimeLog {
-    private String employeeNumber;
+    // The employee number, encoded by the shared EmployeeIdDictionary
+    private int employeeId;
     private LocalDate date;
     private LocalTime timeIn;
     private LocalTime timeOut;
 
     public TimeLog(String employeeNumber, LocalDate date, LocalTime timeIn, LocalTime timeOut) {
-        this.employeeNumber = employeeNumber;
+        this.employeeId = idOf(employeeNumber);
         this.date = date;
         this.timeIn = timeIn;
         this.timeOut = timeOut;
     }
+
+    // For stores that already hold the dictionary id
+    TimeLog(int employeeId, LocalDate date, LocalTime timeIn, LocalTime timeOut) {
+        this.employeeId = employeeId;
+        this.date = date;
+        this.timeIn = timeIn;
+        this.timeOut = timeOut;
+    }
+
     // Getters and setters
     public String getEmployeeNumber() {
-        return employeeNumber;
+        return employeeId == EmployeeIdDictionary.UNKNOWN ? null : EmployeeIdDictionary.shared().numberOf(employeeId);
     }
 
     public void setEmployeeNumber(String employeeNumber) {
-        this.employeeNumber = employeeNumber;
+        this.employeeId = idOf(employeeNumber);
+    }
+
+    /**
+     * @return The dictionary id of the employee number, for joins on ints
+     */
+    public int getEmployeeId() {
+        return employeeId;
     }
 
     public LocalDate getDate() {
@@ -47,4 +64,8 @@ public class TimeLog {
     public void setTimeOut(LocalTime timeOut) {
         this.timeOut = timeOut;
     }
-}
\ No newline at end of file
+
+    private static int idOf(String employeeNumber) {
+        return employeeNumber == null ? EmployeeIdDictionary.UNKNOWN : EmployeeIdDictionary.shared().idOf(employeeNumber);
+    }
+}
@@ -0,0 +1,205 @@
+package Core;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Time logs grouped by employee id (see {@link EmployeeIdDictionary}), each group sorted
+ * by date. Groups sit in an array indexed by the id, so finding one is an array read. A date range query is two
+ * binary searches plus a copy of the matching slice, O(log n + k), instead of a scan of
+ * the whole history.
+ *
+ * Each log is packed into one long (epoch day in the high 32 bits, then the minutes in
+ * and out as 16 bits each), so the index holds no TimeLog objects and the packed values
+ * sort by day. Groups live in long arrays, or in native memory when the time log store
+ * is off-heap (see {@link TimeLogStore}). Queries return read-only TimeLogs. Logs on the
+ * same day stay in the order they were added. Logs without a date cannot match a range
+ * and are not indexed.
+ */
+public class TimeLogIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean offHeap;
+
+    // Guarded by this; indexed by employee id, null where the employee has no logs
+    private EmployeeLogs[] byEmployee = new EmployeeLogs[64];
+    private int size;
+
+    public TimeLogIndex() {
+        this(PayrollConfig.getTimeLogStoreType() == PayrollConfig.TimeLogStoreType.OFFHEAP);
+    }
+
+    /**
+     * @param offHeap true to keep the groups in native memory instead of long arrays
+     */
+    public TimeLogIndex(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @param timeLogs The time logs to index, in file order
+     * @return A new index over them, stored where the configured time log store is
+     */
+    public static TimeLogIndex build(List<TimeLog> timeLogs) {
+        TimeLogIndex index = new TimeLogIndex();
+        index.addAll(timeLogs);
+        return index;
+    }
+
+    public synchronized void add(TimeLog timeLog) {
+        if (timeLog.getDate() == null) {
+            return;
+        }
+        int id = timeLog.getEmployeeId();
+        if (id == EmployeeIdDictionary.UNKNOWN) {
+            return;
+        }
+        if (id >= byEmployee.length) {
+            byEmployee = Arrays.copyOf(byEmployee, Math.max(id + 1, byEmployee.length * 2));
+        }
+        EmployeeLogs logs = byEmployee[id];
+        if (logs == null) {
+            logs = byEmployee[id] = new EmployeeLogs(offHeap);
+        }
+        logs.add(pack(timeLog));
+        size++;
+    }
+
+    public synchronized void addAll(List<TimeLog> timeLogs) {
+        for (TimeLog timeLog : timeLogs) {
+            add(timeLog);
+        }
+    }
+
+    /**
+     * Drops every time log
+     */
+    public synchronized void clear() {
+        byEmployee = new EmployeeLogs[64];
+        size = 0;
+    }
+
+    /**
+     * Drops every time log of an employee
+     * @param employeeNumber The employee whose logs are removed
+     */
+    public synchronized void removeEmployee(String employeeNumber) {
+        int id = EmployeeIdDictionary.shared().find(employeeNumber);
+        EmployeeLogs logs = logsOf(id);
+        if (logs != null) {
+            byEmployee[id] = null;
+            size -= logs.size;
+        }
+    }
+
+    /**
+     * @param employeeNumber The employee to look up
+     * @param startDate The first date (inclusive)
+     * @param endDate The last date (inclusive)
+     * @return The employee's time logs in the range, oldest first
+     */
+    public synchronized List<TimeLog> find(String employeeNumber, LocalDate startDate, LocalDate endDate) {
+        int id = EmployeeIdDictionary.shared().find(employeeNumber);
+        EmployeeLogs logs = logsOf(id);
+        if (logs == null || startDate.isAfter(endDate)) {
+            return new ArrayList<>();
+        }
+        int from = logs.firstIndexAfter(startDate.toEpochDay() - 1);
+        int to = logs.firstIndexAfter(endDate.toEpochDay());
+        List<TimeLog> found = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            long packed = logs.get(i);
+            found.add(ColumnarTimeLogStore.view(id, (int) (packed >> 32),
+                    (short) (packed >>> 16), (short) packed));
+        }
+        return found;
+    }
+
+    /**
+     * @return How many time logs are indexed
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private EmployeeLogs logsOf(int id) {
+        return id >= 0 && id < byEmployee.length ? byEmployee[id] : null;
+    }
+
+    // Day in the high half; the minutes (-1 when missing) as unsigned 16-bit fields
+    private static long pack(TimeLog timeLog) {
+        return (long) ColumnarTimeLogStore.dayOf(timeLog.getDate()) << 32
+                | (ColumnarTimeLogStore.minuteOf(timeLog.getTimeIn()) & 0xFFFFL) << 16
+                | ColumnarTimeLogStore.minuteOf(timeLog.getTimeOut()) & 0xFFFFL;
+    }
+
+    // One employee's packed logs, sorted by day, in a long array or a native segment
+    private static final class EmployeeLogs {
+        long[] array;
+        MemorySegment segment;
+        int capacity = INITIAL_CAPACITY;
+        int size;
+
+        EmployeeLogs(boolean offHeap) {
+            if (offHeap) {
+                segment = Arena.ofAuto().allocate(capacity * Long.BYTES, Long.BYTES);
+            } else {
+                array = new long[capacity];
+            }
+        }
+
+        long get(int i) {
+            return array != null ? array[i] : segment.getAtIndex(ValueLayout.JAVA_LONG, i);
+        }
+
+        void add(long packed) {
+            if (size == capacity) {
+                grow();
+            }
+
+            // Punches nearly always arrive in date order, so this is usually an append
+            int day = (int) (packed >> 32);
+            int position = size == 0 || (int) (get(size - 1) >> 32) <= day ? size : firstIndexAfter(day);
+            if (array != null) {
+                System.arraycopy(array, position, array, position + 1, size - position);
+                array[position] = packed;
+            } else {
+                MemorySegment.copy(segment, (long) position * Long.BYTES, segment, (long) (position + 1) * Long.BYTES,
+                        (long) (size - position) * Long.BYTES);
+                segment.setAtIndex(ValueLayout.JAVA_LONG, position, packed);
+            }
+            size++;
+        }
+
+        // Index of the first entry dated after the given day (size if there is none)
+        int firstIndexAfter(long day) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle) >> 32 <= day) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void grow() {
+            capacity *= 2;
+            if (array != null) {
+                array = Arrays.copyOf(array, capacity);
+            } else {
+                MemorySegment grown = Arena.ofAuto().allocate((long) capacity * Long.BYTES, Long.BYTES);
+                MemorySegment.copy(segment, 0, grown, 0, (long) size * Long.BYTES);
+                segment = grown;
+            }
+        }
+    }
+}
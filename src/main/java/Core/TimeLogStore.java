@@ -0,0 +1,77 @@
+package Core;
+
+import java.util.List;
+
+/**
+ * The loaded time log history. It is a {@link List} of TimeLog for existing callers,
+ * plus column access for scans that should not build a TimeLog per row. Rows can be
+ * added and removed but not replaced, and the TimeLogs it returns are read-only.
+ * Writers are serialized on the store; code reading alongside them takes a
+ * {@link #snapshot()}.
+ *
+ * Where the rows live is chosen with -Dpayroll.attendance.store=heap|offheap (see
+ * {@link PayrollConfig}):
+ *
+ * - heap (default): primitive arrays ({@link ColumnarTimeLogStore})
+ * - offheap: native memory outside the Java heap ({@link OffHeapTimeLogStore}), so a
+ *   large history adds nothing for the garbage collector to trace or copy
+ */
+public interface TimeLogStore extends List<TimeLog> {
+
+    /**
+     * @param capacity Rows to make room for up front
+     * @return An empty store of the configured type
+     */
+    static TimeLogStore create(int capacity) {
+        if (PayrollConfig.getTimeLogStoreType() == PayrollConfig.TimeLogStoreType.OFFHEAP) {
+            return new OffHeapTimeLogStore(capacity);
+        }
+        return new ColumnarTimeLogStore(capacity);
+    }
+
+    /**
+     * Removes every row of an employee without building TimeLogs
+     * @param employeeNumber The employee whose rows are removed
+     * @return true if any row was removed
+     */
+    boolean removeEmployee(String employeeNumber);
+
+    /**
+     * Takes an immutable view of the rows as they are now, in O(1). The view shares the
+     * store's memory: appends only write past its end, and a removal after a snapshot
+     * first moves the store to a fresh copy, so the view never changes.
+     * @return The rows at this moment, safe to read from any thread once published
+     */
+    List<TimeLog> snapshot();
+
+    /**
+     * Makes the store keep an index in step with its rows. The index is filled from the
+     * rows as they are now and then told about every later add and removal while the
+     * store's lock is held, so a row written during the hand-over is indexed exactly
+     * once. Attaching another index replaces this one.
+     * @param index The index to fill; anything already in it is dropped
+     */
+    void attachIndex(TimeLogIndex index);
+
+    String getEmployeeNumber(int row);
+
+    /**
+     * @return The {@link EmployeeIdDictionary} id of the row's employee number
+     */
+    int getEmployeeId(int row);
+
+    /**
+     * @return The epoch day of the row, or {@link Integer#MIN_VALUE} if it has no date
+     */
+    int getEpochDay(int row);
+
+    /**
+     * @return Minutes since midnight of the time in, or -1 if it is missing
+     */
+    int getMinuteIn(int row);
+
+    /**
+     * @return Minutes since midnight of the time out, or -1 if it is missing
+     */
+    int getMinuteOut(int row);
+}
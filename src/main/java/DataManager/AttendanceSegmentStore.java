@@ -0,0 +1,658 @@
+package DataManager;
+
+import Core.EmployeeIdDictionary;
+import Core.TimeLog;
+import FileReaders.AttendanceArchive;
+import FileReaders.AttendanceFileParser;
+import FileReaders.DateTimeDecoder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The attendance history indexed by month, so a query for a pay period only parses the
+ * months it overlaps and costs the same with one year of history or ten.
+ *
+ * The attendance file stays the only copy of the rows; a month's segment is the list of
+ * byte ranges of the file that hold its rows (usually one, since punches arrive in date
+ * order). Before each query the store reads only what was appended to the file since
+ * the last query and adds those rows' ranges to their months. If the file was rewritten
+ * instead (e.g. an employee's rows were removed), the ranges are rebuilt from it.
+ *
+ * Closed months can be moved out of the attendance file into compact archives (see
+ * {@link #archive}). An archived month is read from its archive, plus the attendance
+ * file ranges of any punches that arrived for it afterwards.
+ *
+ * Layout, in a directory of its own (DataRepository puts it in the cache directory):
+ * <pre>
+ *   2024-05.arc     an archived month (see AttendanceArchive)
+ *   manifest        "attendance file offset TAB fingerprint TAB format", then per segment
+ *                   "month TAB first date TAB last date TAB rows TAB ranges", and per archive
+ *                   "month TAB first date TAB last date TAB rows TAB arc TAB ranges archived"
+ * </pre>
+ * Ranges are written as "start-end" pairs separated by commas.
+ */
+public class AttendanceSegmentStore {
+    private static final String MANIFEST = "manifest";
+    // Bumped when the manifest changes meaning; an older one is rebuilt
+    private static final String MANIFEST_FORMAT = "ranges";
+    // Month files written by earlier versions, which copied the rows out of the attendance file
+    private static final String SEGMENT_SUFFIX = ".csv";
+    private static final String ARCHIVE_SUFFIX = ".arc";
+
+    // The fingerprint covers this many bytes just before the synced offset
+    private static final int FINGERPRINT_BYTES = 256;
+
+    private static final int DATE_FIELD = 3;
+
+    private final Path sourceFile;
+    private final Path directory;
+
+    // Mirrors the manifest; loaded on first use
+    private TreeMap<YearMonth, Segment> segments;
+    private TreeMap<YearMonth, Segment> archives;
+    private long syncedOffset;
+    private long fingerprint;
+
+    /**
+     * @param sourceFile The attendance file the segments follow
+     * @param directory Where the segments and manifest are kept (created if missing)
+     */
+    public AttendanceSegmentStore(Path sourceFile, Path directory) {
+        this.sourceFile = sourceFile;
+        this.directory = directory;
+    }
+
+    /**
+     * Streams the time logs dated within a range, reading only the overlapping months.
+     * Rows are parsed as the stream is consumed; close the stream when done.
+     * @param startDate The first date (inclusive)
+     * @param endDate The last date (inclusive)
+     * @return The time logs in date order by month, and file order within a month
+     * @throws IOException If the attendance file or the segments cannot be read
+     */
+    public Stream<TimeLog> stream(LocalDate startDate, LocalDate endDate) throws IOException {
+        List<Supplier<Stream<TimeLog>>> parts = new ArrayList<>();
+        synchronized (this) {
+            // The ranges refer to this mapping, even if the file is rewritten afterwards
+            ByteBuffer source = synchronizeAndMap();
+            YearMonth first = YearMonth.from(startDate);
+            YearMonth last = YearMonth.from(endDate);
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                Segment archive = archives.get(month);
+                if (archive != null && archive.overlaps(startDate, endDate)) {
+                    Path file = archiveFile(month);
+                    parts.add(() -> readArchive(file));
+                }
+                Segment segment = segments.get(month);
+                if (segment != null && segment.overlaps(startDate, endDate)) {
+                    // Rows archived but not yet removed from the file come from the archive
+                    Ranges ranges = archive != null ? segment.ranges.without(archive.ranges) : segment.ranges;
+                    AttendanceFileParser parser = new AttendanceFileParser();
+                    ranges.forEach((start, end) -> parts.add(() -> parser.stream(source, (int) start, (int) end)));
+                }
+            }
+        }
+
+        return parts.stream()
+                .flatMap(Supplier::get)
+                .filter(log -> !log.getDate().isBefore(startDate) && !log.getDate().isAfter(endDate));
+    }
+
+    /**
+     * Reads every archived month, oldest first. Together with the attendance file this is
+     * the whole history.
+     * @return The archived time logs
+     * @throws IOException If an archive cannot be read
+     */
+    public synchronized List<TimeLog> readArchives() throws IOException {
+        if (segments == null) {
+            readManifest();
+        }
+        List<TimeLog> timeLogs = new ArrayList<>();
+        for (YearMonth month : archives.keySet()) {
+            AttendanceArchive.read(archiveFile(month), timeLogs::add);
+        }
+        return timeLogs;
+    }
+
+    /**
+     * Moves the rows of every month before the cutoff into that month's archive. The
+     * caller must then remove those months' rows from the attendance file (see
+     * {@link #rowMonth} and {@link #getArchivedRanges}); the ranges are rebuilt from it on
+     * the next query. Each archive
+     * remembers which ranges of the attendance file it took, so a row that is already
+     * archived (e.g. after a crash before the file was rewritten) is not added again,
+     * while two identical punches are both kept.
+     * @param before The first month to keep in the attendance file
+     * @return The months whose rows are archived and must leave the attendance file
+     * @throws IOException If the attendance file cannot be read or an archive cannot be written
+     */
+    public synchronized Set<YearMonth> archive(YearMonth before) throws IOException {
+        ByteBuffer source = synchronizeAndMap();
+        Set<YearMonth> archived = new TreeSet<>();
+        for (Segment segment : new ArrayList<>(segments.headMap(before, false).values())) {
+            Path archiveFile = archiveFile(segment.month);
+            Segment archive = archives.get(segment.month);
+            Ranges pending = archive != null ? segment.ranges.without(archive.ranges) : segment.ranges;
+            if (pending.isEmpty()) {
+                if (archive != null) {
+                    archived.add(segment.month);
+                }
+                continue;
+            }
+
+            List<TimeLog> timeLogs = archive != null ? AttendanceArchive.read(archiveFile) : new ArrayList<>();
+            AttendanceFileParser parser = new AttendanceFileParser();
+            pending.forEach((start, end) -> parser.parse(source, (int) start, (int) end, timeLogs::add));
+            Segment updated = null;
+            for (TimeLog log : timeLogs) {
+                if (updated == null) {
+                    updated = new Segment(segment.month, log.getDate(), log.getDate(), 0);
+                }
+                updated.include(log.getDate());
+            }
+            if (updated == null) {
+                continue;
+            }
+            updated.ranges = (archive != null ? archive.ranges : new Ranges()).union(pending);
+
+            AttendanceArchive.write(archiveFile, timeLogs);
+            archives.put(segment.month, updated);
+            archived.add(segment.month);
+            System.out.println("Archived " + segment.month + ": " + timeLogs.size() + " rows, "
+                    + Files.size(archiveFile) + " bytes (was " + pending.bytes() + " bytes of CSV)");
+        }
+        writeManifest();
+        return archived;
+    }
+
+    /**
+     * The attendance file ranges whose rows are archived but still in the file, e.g. after
+     * a crash between {@link #archive} and the rewrite that removes them. Every rewrite of
+     * the file must leave them out: the ranges are offsets into the old file, so they are
+     * dropped once it is rewritten, and rows left behind would then be read twice.
+     * @return Ranges [start, end) of the current file, in file order
+     * @throws IOException If the attendance file cannot be read
+     */
+    public synchronized List<long[]> getArchivedRanges() throws IOException {
+        synchronizeAndMap();
+        Ranges archived = new Ranges();
+        for (Segment archive : archives.values()) {
+            archived = archived.union(archive.ranges);
+        }
+        List<long[]> ranges = new ArrayList<>(archived.size());
+        archived.forEach((start, end) -> ranges.add(new long[]{start, end}));
+        return ranges;
+    }
+
+    /**
+     * Removes an employee's rows from every archive
+     * @param employeeNumber The employee whose rows to remove
+     * @return The number of rows removed
+     * @throws IOException If an archive cannot be read or written
+     */
+    public synchronized int removeFromArchives(String employeeNumber) throws IOException {
+        if (segments == null) {
+            readManifest();
+        }
+        int removed = 0;
+        for (YearMonth month : new ArrayList<>(archives.keySet())) {
+            List<TimeLog> timeLogs = AttendanceArchive.read(archiveFile(month));
+            // Reading gives every number in the archive an id, so an unknown one is not in it
+            int employeeId = EmployeeIdDictionary.shared().find(employeeNumber);
+            if (employeeId == EmployeeIdDictionary.UNKNOWN) {
+                continue;
+            }
+            int before = timeLogs.size();
+            timeLogs.removeIf(log -> log.getEmployeeId() == employeeId);
+            if (timeLogs.size() == before) {
+                continue;
+            }
+            removed += before - timeLogs.size();
+            if (timeLogs.isEmpty()) {
+                Files.delete(archiveFile(month));
+                archives.remove(month);
+            } else {
+                AttendanceArchive.write(archiveFile(month), timeLogs);
+                archives.get(month).rows = timeLogs.size();
+            }
+        }
+        if (removed > 0) {
+            writeManifest();
+        }
+        return removed;
+    }
+
+    /**
+     * @param row An attendance file row
+     * @return The month of the row's date, or null if the row has no valid date
+     */
+    public static YearMonth rowMonth(String row) {
+        int fieldStart = 0;
+        for (int field = 0; field < DATE_FIELD; field++) {
+            fieldStart = row.indexOf(',', fieldStart) + 1;
+            if (fieldStart == 0) {
+                return null;
+            }
+        }
+        int fieldEnd = row.indexOf(',', fieldStart);
+        try {
+            return YearMonth.from(new DateTimeDecoder().decodeDate(row.substring(fieldStart, fieldEnd < 0 ? row.length() : fieldEnd)));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return How far into the attendance file the segments (and so the last
+     *         {@link #archive}) have read
+     */
+    public synchronized long getSyncedOffset() {
+        return syncedOffset;
+    }
+
+    /**
+     * @return The months that have a segment, oldest first
+     */
+    public synchronized List<YearMonth> getMonths() throws IOException {
+        synchronize();
+        return new ArrayList<>(segments.keySet());
+    }
+
+    /**
+     * Brings the segments up to date with the attendance file: appended rows are copied
+     * into their months, and a rewritten file is split again from scratch
+     * @throws IOException If the attendance file or the segments cannot be read or written
+     */
+    public synchronized void synchronize() throws IOException {
+        synchronizeAndMap();
+    }
+
+    // Brings the segments up to date and returns the attendance file they now describe
+    // (empty if there is no file). Mapping through the same channel keeps the two in step.
+    private ByteBuffer synchronizeAndMap() throws IOException {
+        if (segments == null) {
+            readManifest();
+        }
+        if (!Files.exists(sourceFile)) {
+            return ByteBuffer.allocate(0);
+        }
+
+        try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (syncedOffset == 0 || size < syncedOffset || fingerprint(channel, syncedOffset) != fingerprint) {
+                if (syncedOffset > 0) {
+                    System.out.println("Attendance file was rewritten, rebuilding the monthly segments");
+                }
+                clear();
+            }
+            if (size == syncedOffset) {
+                return buffer;
+            }
+
+            int start = syncedOffset == 0 ? AttendanceFileParser.dataStart(buffer) : (int) syncedOffset;
+
+            // Only whole rows; a row still being written is picked up next time
+            int end = (int) size;
+            while (end > start && buffer.get(end - 1) != '\n') {
+                end--;
+            }
+            if (end > start) {
+                try {
+                    addRows(buffer, start, end);
+                    syncedOffset = end;
+                    fingerprint = fingerprint(channel, syncedOffset);
+                    writeManifest();
+                } catch (IOException e) {
+                    // Start over from the attendance file next time
+                    Files.deleteIfExists(directory.resolve(MANIFEST));
+                    segments = null;
+                    throw e;
+                }
+            }
+            return buffer;
+        }
+    }
+
+    // Adds the range of each row in [start, end) to its month's segment
+    private void addRows(ByteBuffer buffer, int start, int end) {
+        DateTimeDecoder decoder = new DateTimeDecoder();
+        int rowStart = start;
+        while (rowStart < end) {
+            int rowEnd = rowStart;
+            while (rowEnd < end && buffer.get(rowEnd) != '\n') {
+                rowEnd++;
+            }
+
+            LocalDate date = rowDate(decoder, buffer, rowStart, rowEnd);
+            if (date != null) {
+                Segment segment = segments.computeIfAbsent(YearMonth.from(date), month -> new Segment(month, date, date, 0));
+                segment.include(date);
+                segment.ranges.add(rowStart, Math.min(rowEnd + 1, end));
+            }
+            rowStart = rowEnd + 1;
+        }
+    }
+
+    // The row's date, or null for blank and malformed rows (the parser reports those)
+    private static LocalDate rowDate(DateTimeDecoder decoder, ByteBuffer buffer, int start, int end) {
+        int field = 0;
+        int fieldStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ',') {
+                if (field == DATE_FIELD) {
+                    try {
+                        return decoder.decodeDate(buffer, fieldStart, i);
+                    } catch (DateTimeException e) {
+                        return null;
+                    }
+                }
+                field++;
+                fieldStart = i + 1;
+            }
+        }
+        return null;
+    }
+
+    // CRC of the bytes just before the offset, to tell an appended file from a rewritten one
+    private static long fingerprint(FileChannel channel, long offset) throws IOException {
+        int length = (int) Math.min(FINGERPRINT_BYTES, Math.min(offset, channel.size()));
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining() && channel.read(bytes, offset - length + bytes.position()) > 0) {
+            // Keep reading
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.flip());
+        return crc.getValue();
+    }
+
+    private void clear() throws IOException {
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+        }
+        segments.clear();
+        // What the archives took was described in offsets of the old file. This process
+        // leaves archived rows out of every rewrite (see getArchivedRanges), so only a
+        // rewrite by another process can keep some of them in the file.
+        for (Segment archive : archives.values()) {
+            archive.ranges.clear();
+        }
+        syncedOffset = 0;
+        fingerprint = emptyFingerprint();
+        writeManifest();
+    }
+
+    private void readManifest() throws IOException {
+        segments = new TreeMap<>();
+        archives = new TreeMap<>();
+        syncedOffset = 0;
+        fingerprint = emptyFingerprint();
+
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String[] source = reader.readLine().split("\t");
+            if (source.length < 3 || !source[2].equals(MANIFEST_FORMAT)) {
+                throw new IllegalArgumentException("format from an earlier version");
+            }
+            syncedOffset = Long.parseLong(source[0]);
+            fingerprint = Long.parseLong(source[1]);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                YearMonth month = YearMonth.parse(fields[0]);
+                Segment segment = new Segment(month, LocalDate.parse(fields[1]), LocalDate.parse(fields[2]),
+                        Integer.parseInt(fields[3]));
+                if (fields[4].equals("arc")) {
+                    segment.ranges.parse(fields[5]);
+                    archives.put(month, segment);
+                } else {
+                    segment.ranges.parse(fields[4]);
+                    segments.put(month, segment);
+                }
+            }
+        } catch (RuntimeException e) {
+            // A damaged manifest costs a rebuild of the segments; archives are only listed
+            // here, so find them again from their files
+            System.err.println("Invalid attendance segment manifest, rebuilding: " + e.getMessage());
+            segments.clear();
+            syncedOffset = 0;
+            findArchives();
+        }
+    }
+
+    private void findArchives() throws IOException {
+        archives.clear();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ARCHIVE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                YearMonth month = YearMonth.parse(name.substring(0, name.length() - ARCHIVE_SUFFIX.length()));
+                Segment archive = null;
+                for (TimeLog log : AttendanceArchive.read(file)) {
+                    if (archive == null) {
+                        archive = new Segment(month, log.getDate(), log.getDate(), 0);
+                    }
+                    archive.include(log.getDate());
+                }
+                if (archive != null) {
+                    archives.put(month, archive);
+                }
+            }
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, "manifest", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.write(syncedOffset + "\t" + fingerprint + "\t" + MANIFEST_FORMAT);
+            writer.newLine();
+            for (Segment segment : segments.values()) {
+                writer.write(segment.month + "\t" + segment.firstDate + "\t" + segment.lastDate + "\t" + segment.rows
+                        + "\t" + segment.ranges);
+                writer.newLine();
+            }
+            for (Segment archive : archives.values()) {
+                writer.write(archive.month + "\t" + archive.firstDate + "\t" + archive.lastDate + "\t" + archive.rows
+                        + "\tarc\t" + archive.ranges);
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path archiveFile(YearMonth month) {
+        return directory.resolve(month + ARCHIVE_SUFFIX);
+    }
+
+    private static Stream<TimeLog> readArchive(Path file) {
+        try {
+            return AttendanceArchive.stream(file);
+        } catch (IOException e) {
+            System.err.println("Error reading attendance archive " + file + ": " + e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    private static long emptyFingerprint() {
+        return new CRC32().getValue();
+    }
+
+    private static final class Segment {
+        final YearMonth month;
+        LocalDate firstDate;
+        LocalDate lastDate;
+        int rows;
+        // Where the month's rows are in the attendance file; for an archive, the ones it took
+        Ranges ranges = new Ranges();
+
+        Segment(YearMonth month, LocalDate firstDate, LocalDate lastDate, int rows) {
+            this.month = month;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+            this.rows = rows;
+        }
+
+        boolean overlaps(LocalDate startDate, LocalDate endDate) {
+            return !lastDate.isBefore(startDate) && !firstDate.isAfter(endDate);
+        }
+
+        void include(LocalDate date) {
+            if (date.isBefore(firstDate)) {
+                firstDate = date;
+            }
+            if (date.isAfter(lastDate)) {
+                lastDate = date;
+            }
+            rows++;
+        }
+    }
+
+    // Byte ranges [start, end) of the attendance file in file order, touching ones merged
+    private static final class Ranges {
+        private long[] bounds = new long[2];
+        private int size;
+
+        int size() {
+            return size / 2;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long start(int i) {
+            return bounds[2 * i];
+        }
+
+        long end(int i) {
+            return bounds[2 * i + 1];
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (int i = 0; i < size(); i++) {
+                bytes += end(i) - start(i);
+            }
+            return bytes;
+        }
+
+        // Ranges are added in file order, so a row usually just extends the last range
+        void add(long start, long end) {
+            if (size > 0 && start <= bounds[size - 1]) {
+                bounds[size - 1] = Math.max(bounds[size - 1], end);
+                return;
+            }
+            if (size == bounds.length) {
+                bounds = Arrays.copyOf(bounds, size * 2);
+            }
+            bounds[size++] = start;
+            bounds[size++] = end;
+        }
+
+        Ranges union(Ranges other) {
+            Ranges merged = new Ranges();
+            int i = 0;
+            int j = 0;
+            while (i < size() || j < other.size()) {
+                if (j == other.size() || i < size() && start(i) <= other.start(j)) {
+                    merged.add(start(i), end(i));
+                    i++;
+                } else {
+                    merged.add(other.start(j), other.end(j));
+                    j++;
+                }
+            }
+            return merged;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void forEach(RangeConsumer action) {
+            for (int i = 0; i < size(); i++) {
+                action.accept(start(i), end(i));
+            }
+        }
+
+        // The parts of these ranges that the other ones do not cover
+        Ranges without(Ranges other) {
+            Ranges left = new Ranges();
+            int j = 0;
+            for (int i = 0; i < size(); i++) {
+                long start = start(i);
+                long end = end(i);
+                while (j < other.size() && other.end(j) <= start) {
+                    j++;
+                }
+                for (int k = j; k < other.size() && other.start(k) < end; k++) {
+                    if (other.start(k) > start) {
+                        left.add(start, other.start(k));
+                    }
+                    start = Math.max(start, other.end(k));
+                }
+                if (start < end) {
+                    left.add(start, end);
+                }
+            }
+            return left;
+        }
+
+        void parse(String text) {
+            if (text.isEmpty()) {
+                return;
+            }
+            for (String range : text.split(",")) {
+                int dash = range.indexOf('-');
+                add(Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1)));
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < size(); i++) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                text.append(start(i)).append('-').append(end(i));
+            }
+            return text.toString();
+        }
+    }
+
+    private interface RangeConsumer {
+        void accept(long start, long end);
+    }
+}
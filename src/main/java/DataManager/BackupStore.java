@@ -0,0 +1,363 @@
+package DataManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps any number of backup generations of the data files without copying them whole.
+ * A file is cut into content-defined chunks (the cut points depend on the bytes, not on
+ * offsets, so an insert or delete only changes the chunks around it) and each chunk is
+ * stored once under its SHA-256. A generation is a manifest listing its chunks, so a
+ * backup only writes the chunks that no earlier generation already has.
+ *
+ * A backup also starts from the previous generation's chunk boundaries: each of those
+ * chunks is only compared with a 64-bit check value kept in the manifest (two CRCs,
+ * which the CPU computes far faster than SHA-256). Cutting and hashing resume at the
+ * first chunk that changed, so backing up the append-only attendance file rehashes
+ * just its tail.
+ *
+ * Layout, under the backup directory:
+ * <pre>
+ *   chunks/ab/abcd...      chunk contents, named by their SHA-256
+ *   attendance-record.csv/
+ *     1.manifest           "size TAB created millis", then "sha256 TAB length TAB check" per chunk
+ *     2.manifest
+ * </pre>
+ */
+public class BackupStore {
+    // Chunks are 2 KB to 64 KB, about 8 KB on average
+    private static final int MIN_CHUNK = 2 * 1024;
+    private static final int MAX_CHUNK = 64 * 1024;
+    private static final long CUT_MASK = 0xFFF8_0000_0000_0000L; // 13 bits
+
+    // Fixed seed: the cut points must be the same in every run for chunks to be shared
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4A1_1B0CL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final Path directory;
+
+    /**
+     * @param directory Where chunks and manifests are kept (created on the first backup)
+     */
+    public BackupStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Stores a new backup generation of a file
+     * @param file The file to back up
+     * @return The new generation number (generations of a file count up from 1)
+     * @throws IOException If the file cannot be read or the backup cannot be written
+     */
+    public synchronized long backup(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        Path manifestDirectory = directory.resolve(fileName);
+        Files.createDirectories(manifestDirectory);
+
+        // Chunks of the previous generation are known to be stored already
+        List<Long> generations = generations(fileName);
+        long generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1) + 1;
+        List<Chunk> previous = generations.isEmpty()
+                ? List.of() : readManifest(fileName, generations.get(generations.size() - 1));
+        Set<String> knownChunks = new HashSet<>();
+        for (Chunk chunk : previous) {
+            knownChunks.add(chunk.hash);
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        long size = 0;
+        int newChunks = 0;
+        long newBytes = 0;
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[MAX_CHUNK];
+        long rehashedFrom;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Keep the previous chunks for as long as the file still holds the same bytes.
+            // The last one ended at the end of the file rather than at a cut point, so it
+            // only stands if the file still ends there.
+            long fileSize = channel.size();
+            for (int i = 0; i < previous.size(); i++) {
+                Chunk chunk = previous.get(i);
+                long end = size + chunk.length;
+                if (chunk.check == null || end > fileSize || i == previous.size() - 1 && end != fileSize
+                        || !readFully(channel, size, buffer, chunk.length) || check(buffer, chunk.length) != chunk.check) {
+                    break;
+                }
+                chunks.add(chunk);
+                size = end;
+            }
+            rehashedFrom = size;
+
+            // From the first changed offset on, cut and hash as usual
+            channel.position(size);
+            ChunkReader reader = new ChunkReader(Channels.newInputStream(channel));
+            int length;
+            while ((length = reader.next(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+                String hash = HexFormat.of().formatHex(digest.digest());
+                if (!knownChunks.contains(hash) && storeChunk(hash, buffer, length)) {
+                    newChunks++;
+                    newBytes += length;
+                }
+                knownChunks.add(hash);
+                chunks.add(new Chunk(hash, length, check(buffer, length)));
+                size += length;
+            }
+        }
+
+        Path tempFile = Files.createTempFile(manifestDirectory, "manifest", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.write(size + "\t" + System.currentTimeMillis());
+            writer.newLine();
+            for (Chunk chunk : chunks) {
+                writer.write(chunk.hash + "\t" + chunk.length + "\t" + chunk.check);
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, manifestPath(fileName, generation), StandardCopyOption.ATOMIC_MOVE);
+
+        System.out.println("Backup " + fileName + " generation " + generation + ": "
+                + chunks.size() + " chunks, " + newChunks + " new (" + newBytes + " of " + size + " bytes written, "
+                + (size - rehashedFrom) + " rehashed)");
+        return generation;
+    }
+
+    /**
+     * @param fileName The backed-up file's name, e.g. "attendance-record.csv"
+     * @return The generations stored for it, oldest first
+     */
+    public synchronized List<Long> generations(String fileName) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        Path manifestDirectory = directory.resolve(fileName);
+        if (!Files.isDirectory(manifestDirectory)) {
+            return generations;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(manifestDirectory, "*.manifest")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(0, name.length() - ".manifest".length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Opens a stored generation for reading
+     * @param fileName The backed-up file's name
+     * @param generation The generation to read
+     * @return The file contents as they were when the generation was stored
+     * @throws IOException If the generation does not exist
+     */
+    public InputStream open(String fileName, long generation) throws IOException {
+        Iterator<Chunk> chunks = readManifest(fileName, generation).iterator();
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return chunks.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return Files.newInputStream(chunkPath(chunks.next().hash));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a stored generation back out, checking every chunk against its hash. The
+     * target is replaced atomically, so it is never left half restored.
+     * @param fileName The backed-up file's name
+     * @param generation The generation to restore
+     * @param target Where to write it (e.g. the original data file)
+     * @throws IOException If the generation is missing or damaged, or the target cannot be written
+     */
+    public void restore(String fileName, long generation, Path target) throws IOException {
+        Path targetDirectory = target.toAbsolutePath().getParent();
+        Files.createDirectories(targetDirectory);
+        Path tempFile = Files.createTempFile(targetDirectory, fileName, ".restore");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                for (Chunk chunk : readManifest(fileName, generation)) {
+                    byte[] bytes = Files.readAllBytes(chunkPath(chunk.hash));
+                    if (bytes.length != chunk.length || !HexFormat.of().formatHex(digest.digest(bytes)).equals(chunk.hash)) {
+                        throw new IOException("Backup chunk is damaged: " + chunk.hash);
+                    }
+                    out.write(bytes);
+                }
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Restored " + fileName + " generation " + generation + " to " + target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Returns true if the chunk was not stored yet
+    private boolean storeChunk(String hash, byte[] buffer, int length) throws IOException {
+        Path chunkFile = chunkPath(hash);
+        if (Files.exists(chunkFile)) {
+            return false;
+        }
+        Files.createDirectories(chunkFile.getParent());
+        Path tempFile = Files.createTempFile(chunkFile.getParent(), "chunk", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            out.write(buffer, 0, length);
+        }
+        try {
+            Files.move(tempFile, chunkFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tempFile);
+            return false;
+        }
+        return true;
+    }
+
+    private List<Chunk> readManifest(String fileName, long generation) throws IOException {
+        Path manifest = manifestPath(fileName, generation);
+        if (!Files.exists(manifest)) {
+            throw new IOException("No backup generation " + generation + " of " + fileName);
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            reader.readLine(); // Size and time
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length >= 2) {
+                    chunks.add(new Chunk(fields[0], Integer.parseInt(fields[1]),
+                            fields.length > 2 ? Long.valueOf(fields[2]) : null));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private Path manifestPath(String fileName, long generation) {
+        return directory.resolve(fileName).resolve(generation + ".manifest");
+    }
+
+    private Path chunkPath(String hash) {
+        return directory.resolve("chunks").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Reads length bytes at the offset; false if the file ends first
+    private static boolean readFully(FileChannel channel, long offset, byte[] buffer, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, offset + target.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Two independent CRCs, so a chunk edited in place passes as unchanged with odds of
+    // about 1 in 2^64
+    private static long check(byte[] buffer, int length) {
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(buffer, 0, length);
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer, 0, length);
+        return crc32c.getValue() << 32 | crc32.getValue();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Splits a stream at content-defined cut points (a gear rolling hash over the bytes)
+    private static final class ChunkReader {
+        private final InputStream in;
+        private final byte[] block = new byte[64 * 1024];
+        private int position;
+        private int limit;
+
+        ChunkReader(InputStream in) {
+            this.in = in;
+        }
+
+        // Reads up to the next cut point into the buffer; returns the chunk length (0 at the end)
+        int next(byte[] buffer) throws IOException {
+            long hash = 0;
+            int length = 0;
+            while (length < MAX_CHUNK) {
+                if (position == limit) {
+                    limit = in.read(block);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        break;
+                    }
+                }
+                byte b = block[position++];
+                buffer[length++] = b;
+                hash = (hash << 1) + GEAR[b & 0xFF];
+                if (length >= MIN_CHUNK && (hash & CUT_MASK) == 0) {
+                    break;
+                }
+            }
+            return length;
+        }
+    }
+
+    private static final class Chunk {
+        final String hash;
+        final int length;
+        // See check(); null in manifests written before check values were kept
+        final Long check;
+
+        Chunk(String hash, int length, Long check) {
+            this.hash = hash;
+            this.length = length;
+            this.check = check;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package DataManager;
+
+import Core.Employee;
+import Core.TimeLog;
+import FileReaders.AttendanceFileParser;
+import FileReaders.EmployeeRecordFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Imports a batch of employees (TSV, same columns as the employee file) and/or punches
+ * (CSV, same columns as the attendance file) in one commit, instead of saving records
+ * one at a time. Every row is validated and checked against the stored data and the rest
+ * of the batch first; rejected rows are left out and listed in the {@link ImportReport}.
+ * The accepted rows are then stored with {@link PayrollRepository#importBatch}, which
+ * takes one backup and writes each file once.
+ *
+ * From the command line:
+ * <pre>
+ *   java DataManager.BulkImporter [--employees new-employees.tsv] [--attendance punches.csv]
+ * </pre>
+ */
+public class BulkImporter {
+    // How many rejected rows the command line prints
+    private static final int MAX_PRINTED_REJECTIONS = 50;
+
+    private final PayrollRepository repository;
+
+    public BulkImporter() {
+        this(PayrollRepository.getConfigured());
+    }
+
+    public BulkImporter(PayrollRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Validates and imports a batch
+     * @param employeeFile Employees to add (null for none); a header line is skipped
+     * @param timeLogFile Punches to add (null for none); a header line is skipped. They may
+     *                    belong to employees added by the same batch.
+     * @return What was imported and rejected
+     * @throws IOException If a batch file cannot be read
+     */
+    public ImportReport importFiles(Path employeeFile, Path timeLogFile) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        Map<String, Employee> newEmployees = new LinkedHashMap<>();
+        if (employeeFile != null) {
+            readEmployees(employeeFile, newEmployees, report);
+        }
+        List<TimeLog> newTimeLogs = new ArrayList<>();
+        if (timeLogFile != null) {
+            readTimeLogs(timeLogFile, newEmployees, newTimeLogs, report);
+        }
+
+        boolean committed = newEmployees.isEmpty() && newTimeLogs.isEmpty()
+                || repository.importBatch(new ArrayList<>(newEmployees.values()), newTimeLogs);
+        report.finish(committed ? newEmployees.size() : 0, committed ? newTimeLogs.size() : 0,
+                committed, System.nanoTime() - start);
+        return report;
+    }
+
+    private void readEmployees(Path file, Map<String, Employee> accepted, ImportReport report) throws IOException {
+        String fileName = file.getFileName().toString();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || lineNumber == 1 && isHeader(line)) {
+                    continue;
+                }
+                report.employeeRead();
+
+                Employee employee = EmployeeRecordFormat.parse(line);
+                if (employee == null) {
+                    report.reject(fileName, lineNumber, line, "invalid employee row");
+                } else if (employee.getEmployeeNumber().isBlank()) {
+                    report.reject(fileName, lineNumber, line, "missing employee number");
+                } else if (repository.getEmployee(employee.getEmployeeNumber()) != null) {
+                    report.reject(fileName, lineNumber, line, "employee already exists");
+                } else if (accepted.containsKey(employee.getEmployeeNumber())) {
+                    report.reject(fileName, lineNumber, line, "duplicate employee in batch");
+                } else {
+                    accepted.put(employee.getEmployeeNumber(), employee);
+                }
+            }
+        }
+    }
+
+    private void readTimeLogs(Path file, Map<String, Employee> batchEmployees, List<TimeLog> accepted,
+                              ImportReport report) throws IOException {
+        String fileName = file.getFileName().toString();
+        AttendanceFileParser parser = new AttendanceFileParser();
+        List<Integer> lineNumbers = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        Set<String> batchKeys = new HashSet<>();
+        LocalDate firstDate = null;
+        LocalDate lastDate = null;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || lineNumber == 1 && isHeader(line)) {
+                    continue;
+                }
+                report.timeLogRead();
+
+                TimeLog timeLog = parser.parseLine(line);
+                String reason = null;
+                if (timeLog == null) {
+                    reason = "invalid time log row";
+                } else if (timeLog.getDate() == null) {
+                    reason = "missing date";
+                } else if (timeLog.getTimeIn() == null && timeLog.getTimeOut() == null) {
+                    reason = "no time in or time out";
+                } else if (!batchEmployees.containsKey(timeLog.getEmployeeNumber())
+                        && repository.getEmployee(timeLog.getEmployeeNumber()) == null) {
+                    reason = "unknown employee";
+                } else if (!batchKeys.add(key(timeLog))) {
+                    reason = "duplicate punch in batch";
+                }
+                if (reason != null) {
+                    report.reject(fileName, lineNumber, line, reason);
+                    continue;
+                }
+
+                accepted.add(timeLog);
+                lineNumbers.add(lineNumber);
+                lines.add(line);
+                if (firstDate == null || timeLog.getDate().isBefore(firstDate)) {
+                    firstDate = timeLog.getDate();
+                }
+                if (lastDate == null || timeLog.getDate().isAfter(lastDate)) {
+                    lastDate = timeLog.getDate();
+                }
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // Punches already stored: only the batch's date range has to be read
+        Set<String> storedKeys = new HashSet<>();
+        try (Stream<TimeLog> stored = repository.streamTimeLogs(firstDate, lastDate)) {
+            stored.filter(log -> batchKeys.contains(key(log))).forEach(log -> storedKeys.add(key(log)));
+        }
+        if (storedKeys.isEmpty()) {
+            return;
+        }
+        List<TimeLog> kept = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            if (storedKeys.contains(key(accepted.get(i)))) {
+                report.reject(fileName, lineNumbers.get(i), lines.get(i), "punch already recorded");
+            } else {
+                kept.add(accepted.get(i));
+            }
+        }
+        accepted.clear();
+        accepted.addAll(kept);
+    }
+
+    private static boolean isHeader(String line) {
+        return line.startsWith("Employee #");
+    }
+
+    // Two punches are the same if they agree on employee, date and both times
+    private static String key(TimeLog timeLog) {
+        return timeLog.getEmployeeNumber() + "|" + timeLog.getDate() + "|" + timeLog.getTimeIn() + "|" + timeLog.getTimeOut();
+    }
+
+    public static void main(String[] args) {
+        Path employeeFile = null;
+        Path timeLogFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--employees") && i + 1 < args.length) {
+                employeeFile = Paths.get(args[++i]);
+            } else if (args[i].equals("--attendance") && i + 1 < args.length) {
+                timeLogFile = Paths.get(args[++i]);
+            } else {
+                employeeFile = null;
+                timeLogFile = null;
+                break;
+            }
+        }
+        if (employeeFile == null && timeLogFile == null) {
+            System.err.println("Usage: BulkImporter [--employees <file.tsv>] [--attendance <file.csv>]");
+            System.exit(2);
+        }
+
+        try {
+            ImportReport report = new BulkImporter().importFiles(employeeFile, timeLogFile);
+            List<ImportReport.RejectedRow> rejectedRows = report.getRejectedRows();
+            for (int i = 0; i < Math.min(rejectedRows.size(), MAX_PRINTED_REJECTIONS); i++) {
+                System.out.println("Rejected " + rejectedRows.get(i));
+            }
+            if (rejectedRows.size() > MAX_PRINTED_REJECTIONS) {
+                System.out.println("... and " + (rejectedRows.size() - MAX_PRINTED_REJECTIONS) + " more rejected rows");
+            }
+            System.out.println(report);
+            System.exit(report.isCommitted() ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println("Error reading import batch: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package DataManager;
+
+import Core.Employee;
+import Core.TimeLog;
+
+import java.util.List;
+
+/**
+ * Notified when the data files change and the in-memory data has been updated.
+ * Calls arrive on a background thread; GUI listeners should hop to the EDT.
+ */
+public interface DataChangeListener {
+    /**
+     * Employee rows were added, edited or removed
+     * @param added Employees that are new
+     * @param updated Employees whose row changed (the new values)
+     * @param removed Employee numbers that are gone
+     */
+    default void employeesChanged(List<Employee> added, List<Employee> updated, List<String> removed) {
+    }
+
+    /**
+     * New attendance rows were appended
+     * @param appended The new time logs in file order
+     */
+    default void timeLogsAppended(List<TimeLog> appended) {
+    }
+
+    /**
+     * The attendance file was rewritten rather than appended to, so it was reloaded in full
+     */
+    default void timeLogsReloaded() {
+    }
+}
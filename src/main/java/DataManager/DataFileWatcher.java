@@ -0,0 +1,348 @@
+package DataManager;
+
+import Core.Employee;
+import Core.TimeLog;
+import FileReaders.AttendanceFileParser;
+import FileReaders.EmployeeRecordFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Watches the data directory and turns changes to the employee and attendance files
+ * into deltas instead of full reloads.
+ *
+ * Attendance: the watcher remembers how many bytes it has consumed (up to a line break,
+ * or the end of the file at the baseline) and a checksum of the last line. When the file grows and that line is unchanged,
+ * only the new bytes are parsed. If the file shrank or earlier content changed, a full
+ * reload is requested. When the repository loads or rewrites the file itself, the
+ * position it reached becomes the baseline, so its own rewrites cost no reload and a
+ * reload neither misses nor repeats rows appended while it ran.
+ *
+ * Employees: the file is small, so it is re-read, but only rows whose text changed are
+ * parsed, and the result is reported as added / updated / removed employees. When the
+ * repository compacts its log into the file, the rows it wrote become the baseline.
+ */
+public class DataFileWatcher implements AutoCloseable {
+    // Writers often touch a file several times in a row; wait for them to settle
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path employeeFile;
+    private final Path timeLogFile;
+    private final DataChangeListener listener;
+    private final Runnable fullTimeLogReload;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    // Attendance bytes already applied, and a checksum of the last applied line
+    private long timeLogOffset;
+    private long lastLineChecksum;
+
+    // Raw text of each employee row, keyed by employee number
+    private Map<String, String> employeeRows = new HashMap<>();
+
+    /**
+     * @param employeeFile The employee TSV file
+     * @param timeLogFile The attendance CSV file
+     * @param listener Receives the parsed deltas
+     * @param fullTimeLogReload Called when the attendance file was rewritten and must be reloaded
+     */
+    public DataFileWatcher(Path employeeFile, Path timeLogFile, DataChangeListener listener, Runnable fullTimeLogReload) {
+        this.employeeFile = employeeFile.toAbsolutePath();
+        this.timeLogFile = timeLogFile.toAbsolutePath();
+        this.listener = listener;
+        this.fullTimeLogReload = fullTimeLogReload;
+    }
+
+    /**
+     * Records the current file contents as the baseline and starts watching
+     * @throws IOException If the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+
+        DataRepository repository = DataRepository.getInstance();
+        repository.readTimeLogFile(() -> {
+            // Resume where the load stopped, else take the file as it is now
+            if (!takeRepositoryBaseline(repository)) {
+                resetTimeLogBaseline();
+            }
+            return null;
+        });
+        employeeRows = repository.readEmployeeFile(() -> {
+            // Rewrites before now are part of the baseline
+            repository.takeOwnEmployeeRows();
+            return readEmployeeRows();
+        });
+
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        directories.add(employeeFile.getParent());
+        directories.add(timeLogFile.getParent());
+        for (Path directory : directories) {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+
+        thread = new Thread(this::watchLoop, "data-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Watching data files in " + directories);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Marks the current attendance file contents as already applied
+     * (e.g. after a full reload or after this process appended to it)
+     */
+    public synchronized void resetTimeLogBaseline() {
+        try {
+            if (!Files.exists(timeLogFile)) {
+                timeLogOffset = 0;
+                lastLineChecksum = 0;
+                return;
+            }
+            // A full load also parses a final row without a line break, so count it as applied
+            ByteBuffer buffer = AttendanceFileParser.map(timeLogFile);
+            timeLogOffset = buffer.limit();
+            lastLineChecksum = lastLineChecksum(buffer, buffer.limit());
+
+            // Our own appends up to here are part of the baseline too
+            DataRepository.getInstance().takeOwnTimeLogRanges(timeLogOffset);
+        } catch (IOException e) {
+            System.err.println("Error reading time log file: " + e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Thread.sleep(SETTLE_MILLIS);
+
+                // Collect everything that happened while we were settling
+                boolean employeesChanged = false;
+                boolean timeLogsChanged = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            employeesChanged = true;
+                            timeLogsChanged = true;
+                            continue;
+                        }
+                        Path changed = ((Path) key.watchable()).resolve((Path) event.context());
+                        employeesChanged |= changed.equals(employeeFile);
+                        timeLogsChanged |= changed.equals(timeLogFile);
+                    }
+                    key.reset();
+                } while ((key = watchService.poll()) != null);
+
+                if (employeesChanged) {
+                    applyEmployeeChanges();
+                }
+                if (timeLogsChanged) {
+                    applyTimeLogChanges();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher was closed
+        }
+    }
+
+    private synchronized void applyTimeLogChanges() {
+        DataRepository repository = DataRepository.getInstance();
+        // A rewrite by this process moves the baseline instead of forcing a reload
+        ByteBuffer buffer = repository.readTimeLogFile(() -> {
+            takeRepositoryBaseline(repository);
+            return mapTimeLogFile();
+        });
+        if (buffer == null) {
+            return;
+        }
+
+        // Anything other than a pure append means we cannot trust our offset
+        if (buffer.limit() < timeLogOffset
+                || lastLineChecksum(buffer, (int) timeLogOffset) != lastLineChecksum) {
+            System.out.println("Time log file was rewritten, reloading");
+            fullTimeLogReload.run();
+            // The reload left the position it read up to; rows appended since then
+            // are picked up by the next event
+            if (!repository.readTimeLogFile(() -> takeRepositoryBaseline(repository))) {
+                resetTimeLogBaseline();
+            }
+            listener.timeLogsReloaded();
+            return;
+        }
+
+        // Only parse complete lines; a partially written row is picked up next time
+        int start = timeLogOffset == 0 ? AttendanceFileParser.dataStart(buffer) : (int) timeLogOffset;
+        int end = lastLineEnd(buffer, buffer.limit());
+        if (end <= start) {
+            return;
+        }
+
+        // Skip rows this process appended itself; they are already in memory
+        List<TimeLog> appended = new ArrayList<>();
+        AttendanceFileParser parser = new AttendanceFileParser();
+        int position = start;
+        for (long[] range : repository.takeOwnTimeLogRanges(end)) {
+            if (range[0] > position) {
+                parser.parse(buffer, position, (int) range[0], appended::add);
+            }
+            position = Math.max(position, (int) range[1]);
+        }
+        if (position < end) {
+            parser.parse(buffer, position, end, appended::add);
+        }
+        timeLogOffset = end;
+        lastLineChecksum = lastLineChecksum(buffer, end);
+
+        if (!appended.isEmpty()) {
+            System.out.println("Applied " + appended.size() + " appended time logs");
+            listener.timeLogsAppended(appended);
+        }
+    }
+
+    // Adopts the position the repository last loaded or rewrote the attendance file to.
+    // Caller is inside readTimeLogFile. Returns false if there was none.
+    private boolean takeRepositoryBaseline(DataRepository repository) {
+        long[] baseline = repository.takeTimeLogBaseline();
+        if (baseline == null) {
+            return false;
+        }
+        timeLogOffset = baseline[0];
+        lastLineChecksum = baseline[1];
+        repository.takeOwnTimeLogRanges(timeLogOffset);
+        return true;
+    }
+
+    // The attendance file, or null if it is missing or cannot be read
+    private ByteBuffer mapTimeLogFile() {
+        try {
+            return Files.exists(timeLogFile) ? AttendanceFileParser.map(timeLogFile) : null;
+        } catch (IOException e) {
+            System.err.println("Error reading time log file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void applyEmployeeChanges() {
+        DataRepository repository = DataRepository.getInstance();
+        Map<String, String> rows = repository.readEmployeeFile(() -> {
+            // A compaction rewrote the file with rows the repository already has; compare
+            // against those, or a change made since then would be undone
+            Map<String, String> ownRows = repository.takeOwnEmployeeRows();
+            if (ownRows != null) {
+                employeeRows = ownRows;
+            }
+            return readEmployeeRows();
+        });
+        if (rows == null) {
+            return;
+        }
+
+        List<Employee> added = new ArrayList<>();
+        List<Employee> updated = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        for (Map.Entry<String, String> row : rows.entrySet()) {
+            String previous = employeeRows.get(row.getKey());
+            if (row.getValue().equals(previous)) {
+                continue;
+            }
+            Employee employee = EmployeeRecordFormat.parse(row.getValue());
+            if (employee == null) {
+                continue;
+            }
+            if (previous == null) {
+                added.add(employee);
+            } else {
+                updated.add(employee);
+            }
+        }
+        for (String employeeNumber : employeeRows.keySet()) {
+            if (!rows.containsKey(employeeNumber)) {
+                removed.add(employeeNumber);
+            }
+        }
+
+        employeeRows = rows;
+        if (!added.isEmpty() || !updated.isEmpty() || !removed.isEmpty()) {
+            System.out.println("Applied employee changes: " + added.size() + " added, "
+                    + updated.size() + " updated, " + removed.size() + " removed");
+            listener.employeesChanged(added, updated, removed);
+        }
+    }
+
+    // Reads the employee rows keyed by employee number, or null if the file cannot be read
+    private Map<String, String> readEmployeeRows() {
+        try {
+            if (!Files.exists(employeeFile)) {
+                return new HashMap<>();
+            }
+            List<String> lines = Files.readAllLines(employeeFile);
+            Map<String, String> rows = new HashMap<>();
+            for (int i = 1; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (!line.isBlank()) {
+                    rows.put(EmployeeRecordFormat.employeeNumber(line), line);
+                }
+            }
+            return rows;
+        } catch (IOException e) {
+            System.err.println("Error reading employee file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Offset just past the last line break before limit (0 if there is none)
+    private static int lastLineEnd(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Checksum of the line that ends at the given offset
+    static long lastLineChecksum(ByteBuffer buffer, int end) {
+        if (end <= 0) {
+            return 0;
+        }
+        int start = lastLineEnd(buffer, end - 1);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(end).position(start));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,1167 @@
+package DataManager;
+
+import Core.Employee;
+import Core.PayrollConfig;
+import Core.TimeLog;
+import Core.TimeLogStore;
+import FileReaders.AttendanceAppender;
+import FileReaders.AttendanceFileParser;
+import FileReaders.DataLoader;
+import FileReaders.EmployeeRecordFormat;
+import FileReaders.LoadProgressListener;
+import FileReaders.ResourceLocator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The one shared copy of the employee and attendance data. Files are parsed once, and
+ * every reader and writer works against the cached result:
+ *
+ * - employees are kept in file order together with the text of their row, so a
+ *   mutation only formats the rows it changes and never re-parses the file
+ * - adds, updates and deletes append one record to the {@link EmployeeMutationLog}
+ *   instead of rewriting the employee file; a background compactor folds the log
+ *   back into the file once it holds enough records
+ * - time logs are loaded on first use, kept in a compact TimeLogStore
+ *   and shared by everyone who asks for them
+ * - new punches are appended to the attendance file without reading it back
+ * - date range queries read only the months they need (see AttendanceSegmentStore)
+ *
+ * Every mutation bumps {@link #getVersion()}, so callers can tell whether data they
+ * derived from the repository is still current.
+ *
+ * This is the "tsv" storage backend of {@link PayrollRepository}.
+ */
+public final class DataRepository implements PayrollRepository {
+    public static final String EMPLOYEE_DATA_FILE = "employee-data.tsv";
+    public static final String TIME_LOG_FILE = "attendance-record.csv";
+
+    // Directories in the cache directory (see PayrollConfig.getCacheDirectory) that hold the
+    // employee mutation log, the backups and the monthly attendance segments
+    private static final String EMPLOYEE_LOG_DIRECTORY = "employee-log";
+    private static final String BACKUP_DIRECTORY = "backups";
+    private static final String SEGMENT_DIRECTORY = "attendance-segments";
+
+    private static final DataRepository INSTANCE = new DataRepository();
+
+    private final DataLoader dataLoader = new DataLoader();
+
+    // Guarded by this
+    private Map<String, Employee> employees;
+    private Map<String, String> employeeRows;
+    private long version;
+
+    // Opened on load if it exists, else on the first mutation; guarded by this
+    private EmployeeMutationLog employeeLog;
+    private boolean compactionPending;
+
+    // Created on first use; its own lock, since both other locks back files up
+    private final Object backupStoreLock = new Object();
+    private BackupStore backupStore;
+
+    // Created on first use
+    private final Object segmentStoreLock = new Object();
+    private AttendanceSegmentStore segmentStore;
+
+    // Held while the log is folded into the employee file, so point-in-time recovery
+    // never sees a half-finished compaction. Taken before this, never after.
+    private final Object compactionLock = new Object();
+    // Rows of the employee file as the last compaction wrote it, until the file watcher
+    // takes them as its baseline; guarded by compactionLock
+    private Map<String, String> ownEmployeeRows;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "employee-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by timeLogLock, which is only held for short steps: a load or rewrite of the
+    // attendance file does its O(file) work outside it and publishes the result under it
+    private final Object timeLogLock = new Object();
+    private TimeLogStore timeLogs;
+
+    // Punches cached while a load runs, added to what it loaded; guarded by timeLogLock
+    private List<TimeLog> pendingTimeLogs;
+
+    // Lets one load or rewrite of the attendance file run at a time, without stopping
+    // punches from being appended. Taken before timeLogLock and the segment store, never after.
+    private final Object timeLogRewriteLock = new Object();
+
+    // Opened on the first punch; closed whenever the attendance file is rewritten
+    private AttendanceAppender timeLogAppender;
+
+    // Attendance file ranges [start, end) appended by this process, which the file
+    // watcher skips so the rows are not applied twice
+    private final NavigableMap<Long, Long> ownTimeLogRanges = new TreeMap<>();
+
+    // Where the file watcher should resume in the attendance file after this process
+    // loaded or rewrote it: {length, checksum of the last line}, until the watcher takes
+    // it; guarded by timeLogLock
+    private long[] timeLogBaseline;
+
+    private DataRepository() {
+    }
+
+    public static DataRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return A number that changes every time the cached data changes
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Location of the employee file (null if it is only available inside a jar)
+    public Path getEmployeeFilePath() {
+        return ResourceLocator.dataFile(EMPLOYEE_DATA_FILE);
+    }
+
+    // Location of the attendance file (null if it is only available inside a jar)
+    public Path getTimeLogFilePath() {
+        return ResourceLocator.dataFile(TIME_LOG_FILE);
+    }
+
+    /**
+     * Backup generations of the data files, kept in the cache directory. Restore a generation with
+     * {@link BackupStore#restore}.
+     * @return The backup store, or null if the data files are only available inside a jar
+     */
+    public BackupStore getBackupStore() {
+        synchronized (backupStoreLock) {
+            if (backupStore == null) {
+                Path employeeFile = getEmployeeFilePath();
+                if (employeeFile == null) {
+                    return null;
+                }
+                backupStore = new BackupStore(derivedDirectory(employeeFile, BACKUP_DIRECTORY));
+            }
+            return backupStore;
+        }
+    }
+
+    /**
+     * @return A copy of the cached employees in file order
+     */
+    public synchronized List<Employee> getEmployees() {
+        ensureEmployeesLoaded();
+        return new ArrayList<>(employees.values());
+    }
+
+    /**
+     * Drops the cached employees and reads the employee file and the change log again,
+     * e.g. after the file was edited while nothing was watching it
+     * @return The employees in file order
+     */
+    public List<Employee> reloadEmployees() {
+        // A compaction must not fold the log into the file while both are read
+        synchronized (compactionLock) {
+            synchronized (this) {
+                employees = null;
+                employeeRows = null;
+                ensureEmployeesLoaded();
+                version++;
+                return new ArrayList<>(employees.values());
+            }
+        }
+    }
+
+    /**
+     * @param employeeNumber The employee number to look up
+     * @return The cached employee, or null if there is none
+     */
+    public synchronized Employee getEmployee(String employeeNumber) {
+        ensureEmployeesLoaded();
+        return employees.get(employeeNumber);
+    }
+
+    /**
+     * Adds a new employee by logging one record
+     * @param employee The employee to add
+     * @return false if the employee number is already taken or the log cannot be written
+     */
+    public synchronized boolean addEmployee(Employee employee) {
+        ensureEmployeesLoaded();
+        String employeeNumber = employee.getEmployeeNumber();
+        if (employees.containsKey(employeeNumber)) {
+            System.err.println("Employee already exists: " + employeeNumber);
+            return false;
+        }
+
+        String row = EmployeeRecordFormat.format(employee);
+        if (!logEmployeeChange(row, null)) {
+            return false;
+        }
+
+        employees.put(employeeNumber, employee);
+        employeeRows.put(employeeNumber, row);
+        version++;
+        scheduleCompactionIfDue();
+        return true;
+    }
+
+    /**
+     * Replaces an employee, or adds them if the number is not known yet
+     * @param employee The new values for the employee
+     * @return true if the change was logged
+     */
+    public synchronized boolean updateEmployee(Employee employee) {
+        ensureEmployeesLoaded();
+        String employeeNumber = employee.getEmployeeNumber();
+        if (!employees.containsKey(employeeNumber)) {
+            System.out.println("Employee not found for update, adding as new: " + employeeNumber);
+            return addEmployee(employee);
+        }
+
+        String row = EmployeeRecordFormat.format(employee);
+        if (!logEmployeeChange(row, null)) {
+            return false;
+        }
+
+        employees.put(employeeNumber, employee);
+        employeeRows.put(employeeNumber, row);
+        version++;
+        scheduleCompactionIfDue();
+        return true;
+    }
+
+    /**
+     * Removes an employee and their attendance rows
+     * @param employeeNumber The employee to remove
+     * @return false if the employee does not exist or the files cannot be written
+     */
+    public boolean deleteEmployee(String employeeNumber) {
+        synchronized (this) {
+            ensureEmployeesLoaded();
+            if (!employees.containsKey(employeeNumber)) {
+                System.err.println("Employee not found for deletion: " + employeeNumber);
+                return false;
+            }
+
+            if (!logEmployeeChange(null, employeeNumber)) {
+                return false;
+            }
+
+            employees.remove(employeeNumber);
+            employeeRows.remove(employeeNumber);
+            version++;
+            scheduleCompactionIfDue();
+        }
+        // Rewriting the attendance file takes a while; employee reads need not wait for it
+        return deleteEmployeeTimeLogs(employeeNumber);
+    }
+
+    /**
+     * Adds a batch of employees and time logs as one commit, with one backup of the
+     * attendance file, one attendance append and one employee log write. The punches are
+     * appended and forced first and the employees logged after them; if the employees
+     * cannot be logged the punches are cut off again, so either the whole batch is stored
+     * or none of it is.
+     * @param newEmployees Employees to add; none of them may exist yet
+     * @param newTimeLogs Time logs to append
+     * @return false if an employee already exists or the batch cannot be stored
+     */
+    public synchronized boolean importBatch(List<Employee> newEmployees, List<TimeLog> newTimeLogs) {
+        ensureEmployeesLoaded();
+        Map<String, Employee> batchEmployees = new HashMap<>(newEmployees.size() * 2);
+        List<String> employeeRowsToLog = new ArrayList<>(newEmployees.size());
+        for (Employee employee : newEmployees) {
+            if (employees.containsKey(employee.getEmployeeNumber())) {
+                System.err.println("Employee already exists: " + employee.getEmployeeNumber());
+                return false;
+            }
+            batchEmployees.put(employee.getEmployeeNumber(), employee);
+            employeeRowsToLog.add(EmployeeRecordFormat.format(employee));
+        }
+        List<String> timeLogRows = new ArrayList<>(newTimeLogs.size());
+        for (TimeLog timeLog : newTimeLogs) {
+            Employee employee = batchEmployees.getOrDefault(timeLog.getEmployeeNumber(),
+                    employees.get(timeLog.getEmployeeNumber()));
+            timeLogRows.add(AttendanceAppender.formatRow(timeLog,
+                    employee != null ? employee.getLastName() : "", employee != null ? employee.getFirstName() : ""));
+        }
+
+        synchronized (timeLogLock) {
+            long[] range = null;
+            long sizeBefore = -1;
+            try {
+                if (!timeLogRows.isEmpty()) {
+                    Path timeLogFile = getTimeLogFilePath();
+                    if (timeLogFile != null && Files.exists(timeLogFile)) {
+                        backupDataFile(timeLogFile);
+                    }
+                    AttendanceAppender appender = appender();
+                    sizeBefore = appender.size();
+                    range = appender.appendAll(timeLogRows);
+                    appender.sync();
+                }
+                if (!employeeRowsToLog.isEmpty()) {
+                    employeeLog().appendUpserts(employeeRowsToLog);
+                }
+            } catch (IOException e) {
+                System.err.println("Error saving import batch: " + e.getMessage());
+                e.printStackTrace();
+                if (sizeBefore >= 0) {
+                    rollBackTimeLogAppend(sizeBefore);
+                }
+                return false;
+            }
+
+            if (range != null) {
+                ownTimeLogRanges.put(range[0], range[1]);
+                cacheTimeLogs(newTimeLogs);
+            }
+        }
+
+        for (int i = 0; i < newEmployees.size(); i++) {
+            employees.put(newEmployees.get(i).getEmployeeNumber(), newEmployees.get(i));
+            employeeRows.put(newEmployees.get(i).getEmployeeNumber(), employeeRowsToLog.get(i));
+        }
+        version++;
+        if (!employeeRowsToLog.isEmpty()) {
+            scheduleCompactionIfDue();
+        }
+        return true;
+    }
+
+    // Cuts the attendance file back to its size before a failed import; caller holds timeLogLock
+    private void rollBackTimeLogAppend(long size) {
+        try {
+            timeLogAppender.truncate(size);
+        } catch (IOException e) {
+            System.err.println("Error removing the punches of a failed import from " + TIME_LOG_FILE
+                    + " (it may keep rows past offset " + size + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the employee list as it was at a point in time, from the archived copies
+     * of the employee file and the logged changes. The cached employees are not touched.
+     * @param time The point in time to recover
+     * @return The employees as of that time, in file order
+     * @throws IOException If the log or archived files cannot be read
+     */
+    public List<Employee> recoverEmployeesAsOf(Instant time) throws IOException {
+        EmployeeMutationLog log;
+        synchronized (compactionLock) {
+            synchronized (this) {
+                ensureEmployeesLoaded();
+                log = employeeLog();
+            }
+
+            List<Employee> recovered = new ArrayList<>();
+            for (String row : log.recoverAsOf(getEmployeeFilePath(), time.toEpochMilli()).values()) {
+                Employee employee = EmployeeRecordFormat.parse(row);
+                if (employee != null) {
+                    recovered.add(employee);
+                }
+            }
+            return recovered;
+        }
+    }
+
+    /**
+     * Applies employee changes that another process made to the file (see DataFileWatcher).
+     * Changes this repository wrote itself are already cached and are skipped. The rest
+     * are logged like local changes, so a restart (which replays the log over the file),
+     * a compaction and point-in-time recovery all keep them.
+     */
+    public synchronized void applyEmployeeChanges(List<Employee> added, List<Employee> updated, List<String> removed) {
+        ensureEmployeesLoaded();
+        List<Employee> upserts = new ArrayList<>(added.size() + updated.size());
+        List<String> rows = new ArrayList<>(added.size() + updated.size());
+        for (List<Employee> changed : List.of(added, updated)) {
+            for (Employee employee : changed) {
+                String row = EmployeeRecordFormat.format(employee);
+                if (!row.equals(employeeRows.get(employee.getEmployeeNumber()))) {
+                    upserts.add(employee);
+                    rows.add(row);
+                }
+            }
+        }
+        List<String> deletes = new ArrayList<>(removed.size());
+        for (String employeeNumber : removed) {
+            if (employees.containsKey(employeeNumber)) {
+                deletes.add(employeeNumber);
+            }
+        }
+        if (rows.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+
+        try {
+            employeeLog().appendChanges(rows, deletes);
+        } catch (IOException e) {
+            // The file already holds the changes, so the cache follows it regardless
+            System.err.println("Error logging employee changes made by another process: " + e.getMessage());
+        }
+        for (int i = 0; i < upserts.size(); i++) {
+            employees.put(upserts.get(i).getEmployeeNumber(), upserts.get(i));
+            employeeRows.put(upserts.get(i).getEmployeeNumber(), rows.get(i));
+        }
+        for (String employeeNumber : deletes) {
+            employees.remove(employeeNumber);
+            employeeRows.remove(employeeNumber);
+        }
+        version++;
+        if (employeeLog != null) {
+            scheduleCompactionIfDue();
+        }
+    }
+
+    /**
+     * Returns the shared time log list, loading it on first use. The list is shared, so
+     * change it only through this repository.
+     * @param progressListener Told how far the load has got (only used if a load happens)
+     * @return The cached time logs in file order
+     */
+    public TimeLogStore getTimeLogs(LoadProgressListener progressListener) {
+        synchronized (timeLogLock) {
+            if (timeLogs != null) {
+                return timeLogs;
+            }
+        }
+        synchronized (timeLogRewriteLock) {
+            synchronized (timeLogLock) {
+                // Another caller may have loaded them while we waited
+                if (timeLogs != null) {
+                    return timeLogs;
+                }
+            }
+            return loadTimeLogs(progressListener);
+        }
+    }
+
+    /**
+     * Drops the cached time logs and loads the attendance file again
+     * @param progressListener Told how far the load has got
+     * @return The newly loaded time logs
+     */
+    public TimeLogStore reloadTimeLogs(LoadProgressListener progressListener) {
+        TimeLogStore loaded;
+        synchronized (timeLogRewriteLock) {
+            loaded = loadTimeLogs(progressListener);
+        }
+        synchronized (this) {
+            version++;
+        }
+        return loaded;
+    }
+
+    /**
+     * Streams the time logs dated within a range. Only the monthly attendance segments
+     * that overlap the range are read, so the cost depends on the period, not on how much
+     * history there is. Close the stream when done.
+     * @param startDate The first date (inclusive)
+     * @param endDate The last date (inclusive)
+     * @return The matching time logs, oldest month first
+     */
+    public Stream<TimeLog> streamTimeLogs(LocalDate startDate, LocalDate endDate) {
+        AttendanceSegmentStore segments = getAttendanceSegments();
+        if (segments != null) {
+            try {
+                return segments.stream(startDate, endDate);
+            } catch (IOException e) {
+                System.err.println("Error reading attendance segments: " + e.getMessage());
+            }
+        }
+
+        // No segments (e.g. the file is only inside a jar): scan the whole file
+        return dataLoader.streamTimeLogs()
+                .filter(log -> !log.getDate().isBefore(startDate) && !log.getDate().isAfter(endDate));
+    }
+
+    /**
+     * The attendance history split by month, kept in the cache directory
+     * @return The segment store, or null if the attendance file is only available inside a jar
+     */
+    public AttendanceSegmentStore getAttendanceSegments() {
+        synchronized (segmentStoreLock) {
+            if (segmentStore == null) {
+                Path timeLogFile = getTimeLogFilePath();
+                if (timeLogFile == null) {
+                    return null;
+                }
+                segmentStore = new AttendanceSegmentStore(timeLogFile,
+                        derivedDirectory(timeLogFile, SEGMENT_DIRECTORY));
+            }
+            return segmentStore;
+        }
+    }
+
+    /**
+     * Adds time logs that were appended to the attendance file by another process
+     * @param appended The new time logs in file order
+     */
+    public void applyAppendedTimeLogs(List<TimeLog> appended) {
+        synchronized (timeLogLock) {
+            cacheTimeLogs(appended);
+        }
+        synchronized (this) {
+            version++;
+        }
+    }
+
+    /**
+     * Appends a punch to the attendance file and the cached time logs
+     * @param timeLog The punch to record
+     * @param lastName The employee's last name (stored in the row for readability)
+     * @param firstName The employee's first name
+     * @return true if the row was written (and, with the BATCH fsync policy, forced to disk)
+     */
+    public boolean appendTimeLog(TimeLog timeLog, String lastName, String firstName) {
+        if (!appendTimeLogs(List.of(timeLog), List.of(AttendanceAppender.formatRow(timeLog, lastName, firstName)))) {
+            return false;
+        }
+        // A single save is a batch of its own, so nobody else would sync it
+        return PayrollConfig.getAttendanceFsyncPolicy() != PayrollConfig.FsyncPolicy.BATCH || syncTimeLogs();
+    }
+
+    /**
+     * Appends several punches with a single write, taking the names stored in each row
+     * from the employee records
+     * @param timeLogs The punches to record
+     * @return true if the rows were written
+     */
+    public boolean appendTimeLogs(List<TimeLog> timeLogs) {
+        List<String> rows = new ArrayList<>(timeLogs.size());
+        for (TimeLog timeLog : timeLogs) {
+            Employee employee = getEmployee(timeLog.getEmployeeNumber());
+            rows.add(AttendanceAppender.formatRow(timeLog,
+                    employee != null ? employee.getLastName() : "", employee != null ? employee.getFirstName() : ""));
+        }
+        return appendTimeLogs(timeLogs, rows);
+    }
+
+    /**
+     * Appends several punches with a single write. Whether they are on disk when this
+     * returns depends on the fsync policy (see {@link #syncTimeLogs()}).
+     * @param timeLogs The punches to record
+     * @param rows The same punches formatted with {@link AttendanceAppender#formatRow}
+     * @return true if the rows were written
+     */
+    public boolean appendTimeLogs(List<TimeLog> timeLogs, List<String> rows) {
+        synchronized (timeLogLock) {
+            try {
+                long[] range = appender().appendAll(rows);
+                ownTimeLogRanges.put(range[0], range[1]);
+                cacheTimeLogs(timeLogs);
+            } catch (IOException e) {
+                System.err.println("Error saving time log data: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        }
+        synchronized (this) {
+            version++;
+        }
+        return true;
+    }
+
+    /**
+     * Forces appended punches to disk (needed with the BATCH fsync policy)
+     * @return true if everything appended so far is on disk
+     */
+    public boolean syncTimeLogs() {
+        synchronized (timeLogLock) {
+            if (timeLogAppender == null) {
+                return true;
+            }
+            try {
+                timeLogAppender.sync();
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error syncing time log data: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Runs a read of the employee file while no compaction can rewrite it, so that what
+     * is read and {@link #takeOwnEmployeeRows()} describe the same file
+     * @param reader Reads the file
+     * @return What the reader returned
+     */
+    public <T> T readEmployeeFile(Supplier<T> reader) {
+        synchronized (compactionLock) {
+            return reader.get();
+        }
+    }
+
+    /**
+     * Removes and returns the rows this repository last wrote to the employee file, keyed
+     * by employee number. The file watcher takes them as its baseline, so the rewrite is
+     * not reported back as changes made by another process.
+     * @return The rows, or null if the file was not rewritten since the last call
+     */
+    public Map<String, String> takeOwnEmployeeRows() {
+        synchronized (compactionLock) {
+            Map<String, String> rows = ownEmployeeRows;
+            ownEmployeeRows = null;
+            return rows;
+        }
+    }
+
+    /**
+     * Runs a read of the attendance file while this process cannot load, append to or
+     * rewrite it, so that what is read and {@link #takeTimeLogBaseline()} describe the
+     * same file
+     * @param reader Reads the file
+     * @return What the reader returned
+     */
+    public <T> T readTimeLogFile(Supplier<T> reader) {
+        synchronized (timeLogRewriteLock) {
+            synchronized (timeLogLock) {
+                return reader.get();
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the attendance file position this process last loaded up to or
+     * rewrote the file to. The file watcher resumes from it, so neither the rewrite nor
+     * rows the load already read are reported back as changes made by another process.
+     * @return {length, last line checksum} (see DataFileWatcher), or null if the file was
+     *         not loaded or rewritten since the last call
+     */
+    public long[] takeTimeLogBaseline() {
+        synchronized (timeLogLock) {
+            long[] baseline = timeLogBaseline;
+            timeLogBaseline = null;
+            return baseline;
+        }
+    }
+
+    /**
+     * Removes and returns the ranges this process appended that lie before the given offset
+     * @param end Offset up to which the caller is reading the attendance file
+     * @return The ranges [start, end) in file order
+     */
+    public List<long[]> takeOwnTimeLogRanges(long end) {
+        synchronized (timeLogLock) {
+            List<long[]> ranges = new ArrayList<>();
+            while (!ownTimeLogRanges.isEmpty() && ownTimeLogRanges.firstKey() < end) {
+                Map.Entry<Long, Long> range = ownTimeLogRanges.pollFirstEntry();
+                if (range.getValue() > end) {
+                    // Only part of the write is visible yet; keep the rest for next time
+                    ownTimeLogRanges.put(end, range.getValue());
+                    ranges.add(new long[]{range.getKey(), end});
+                    break;
+                }
+                ranges.add(new long[]{range.getKey(), range.getValue()});
+            }
+            return ranges;
+        }
+    }
+
+    // Caller holds timeLogLock
+    private AttendanceAppender appender() throws IOException {
+        if (timeLogAppender == null) {
+            Path timeLogFile = getTimeLogFilePath();
+            if (timeLogFile == null) {
+                throw new IOException("Time log file is not writable: " + TIME_LOG_FILE);
+            }
+            timeLogAppender = new AttendanceAppender(timeLogFile);
+            // The header or line break it may have written is ours too
+            long[] prepared = timeLogAppender.getPreparedRange();
+            if (prepared != null) {
+                ownTimeLogRanges.put(prepared[0], prepared[1]);
+            }
+        }
+        return timeLogAppender;
+    }
+
+    // Adds time logs to the cache, and to the load in progress if there is one; caller
+    // holds timeLogLock
+    private void cacheTimeLogs(List<TimeLog> added) {
+        if (timeLogs != null) {
+            timeLogs.addAll(added);
+        }
+        if (pendingTimeLogs != null) {
+            pendingTimeLogs.addAll(added);
+        }
+    }
+
+    // Caller holds timeLogLock; the next punch reopens the (replaced) file
+    private void closeAppender() {
+        if (timeLogAppender != null) {
+            try {
+                timeLogAppender.close();
+            } catch (IOException e) {
+                System.err.println("Error closing time log file: " + e.getMessage());
+            }
+            timeLogAppender = null;
+        }
+        ownTimeLogRanges.clear();
+    }
+
+    /**
+     * Moves every month before the cutoff out of the attendance file into compact archives
+     * (see AttendanceArchive). The cached time logs do not change, since archived months
+     * are still part of the history that is loaded and queried.
+     * @param before The first month to keep in the attendance file
+     * @return true if the closed months were archived (or there were none)
+     */
+    public boolean archiveClosedPeriods(YearMonth before) {
+        Path timeLogFile = getTimeLogFilePath();
+        AttendanceSegmentStore segments = getAttendanceSegments();
+        if (timeLogFile == null || segments == null || !Files.exists(timeLogFile)) {
+            System.err.println("Time log file is not writable: " + TIME_LOG_FILE);
+            return false;
+        }
+
+        synchronized (timeLogRewriteLock) {
+            try {
+                Set<YearMonth> archived;
+                long archivedUpTo;
+                synchronized (segments) {
+                    archived = segments.archive(before);
+                    archivedUpTo = segments.getSyncedOffset();
+                }
+                if (!archived.isEmpty()) {
+                    backupDataFile(timeLogFile);
+                    // Punches for those months that arrive while the file is copied were not
+                    // archived, so they stay
+                    int[] dropped = rewriteTimeLogFile(timeLogFile, (row, offset) -> offset < archivedUpTo
+                            && archived.contains(AttendanceSegmentStore.rowMonth(row)), () -> {
+                            });
+                    System.out.println("Moved " + (dropped[0] + dropped[1]) + " time logs from " + archived + " to the archive");
+                }
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error archiving time logs: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    // Loads the archived months followed by the attendance file into the configured
+    // TimeLogStore and makes it the cache. Only mapping the file and publishing the store
+    // happen under timeLogLock; punches appended in between are kept aside and added to
+    // the store. Caller holds timeLogRewriteLock.
+    private TimeLogStore loadTimeLogs(LoadProgressListener progressListener) {
+        ByteBuffer buffer = null;
+        synchronized (timeLogLock) {
+            pendingTimeLogs = new ArrayList<>();
+            try {
+                buffer = AttendanceFileParser.openResource(TIME_LOG_FILE);
+                if (buffer == null) {
+                    System.err.println("Error: Could not find resource " + TIME_LOG_FILE);
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading time log data: " + e.getMessage());
+            }
+        }
+
+        List<TimeLog> loaded = buffer != null ? dataLoader.loadTimeLogs(buffer, progressListener) : List.of();
+        List<TimeLog> archived = List.of();
+        AttendanceSegmentStore segments = getAttendanceSegments();
+        if (segments != null) {
+            try {
+                archived = segments.readArchives();
+                if (!archived.isEmpty()) {
+                    System.out.println("Loaded " + archived.size() + " archived time logs");
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading archived time logs: " + e.getMessage());
+            }
+        }
+
+        TimeLogStore store = TimeLogStore.create(archived.size() + loaded.size());
+        store.addAll(archived);
+        store.addAll(loaded);
+
+        synchronized (timeLogLock) {
+            store.addAll(pendingTimeLogs);
+            pendingTimeLogs = null;
+            timeLogs = store;
+            if (buffer != null) {
+                recordTimeLogBaseline(buffer);
+            }
+        }
+        return store;
+    }
+
+    // The whole attendance file as this process last loaded or wrote it; caller holds timeLogLock
+    private void recordTimeLogBaseline(ByteBuffer buffer) {
+        timeLogBaseline = new long[]{buffer.limit(), DataFileWatcher.lastLineChecksum(buffer, buffer.limit())};
+    }
+
+    // Removes the employee's rows from the attendance file and the archives
+    private boolean deleteEmployeeTimeLogs(String employeeNumber) {
+        Path timeLogFile = getTimeLogFilePath();
+        if (timeLogFile == null || !Files.exists(timeLogFile)) {
+            System.err.println("Time log file is not writable: " + TIME_LOG_FILE);
+            return false;
+        }
+
+        synchronized (timeLogRewriteLock) {
+            try {
+                backupDataFile(timeLogFile);
+
+                String prefix = employeeNumber + ",";
+                int[] dropped = rewriteTimeLogFile(timeLogFile, (row, offset) -> row.startsWith(prefix), () -> {
+                    if (timeLogs != null) {
+                        timeLogs.removeEmployee(employeeNumber);
+                    }
+                });
+                if (dropped[1] > 0) {
+                    System.out.println("Removed " + dropped[1] + " already archived time logs from " + TIME_LOG_FILE);
+                }
+                int removedRows = dropped[0];
+                AttendanceSegmentStore segments = getAttendanceSegments();
+                if (segments != null) {
+                    removedRows += segments.removeFromArchives(employeeNumber);
+                }
+                System.out.println("Removed " + removedRows + " time logs for employee " + employeeNumber);
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error deleting employee time logs: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    // Rewrites the attendance file without the matching rows, copying the others as-is.
+    // Rows that are already archived are left out too, whatever the filter says (see
+    // AttendanceSegmentStore.getArchivedRanges). The rows already in the file are copied
+    // without any lock; timeLogLock is only held to copy the rows appended meanwhile,
+    // replace the file and run onReplaced (which brings the cache in line). Caller holds
+    // timeLogRewriteLock. Returns how many rows were dropped: {by the filter, as archived}.
+    private int[] rewriteTimeLogFile(Path timeLogFile, RowFilter drop, Runnable onReplaced) throws IOException {
+        AttendanceSegmentStore segments = getAttendanceSegments();
+        List<long[]> archivedRanges = segments != null ? segments.getArchivedRanges() : List.of();
+        int[] alreadyArchived = {0};
+        RowFilter dropWithArchived = (row, offset) -> {
+            if (covers(archivedRanges, offset)) {
+                alreadyArchived[0]++;
+                return true;
+            }
+            return drop.test(row, offset);
+        };
+
+        Path tempFile = Files.createTempFile(timeLogFile.toAbsolutePath().getParent(), "time-logs", ".tmp");
+        try {
+            ByteBuffer source = AttendanceFileParser.map(timeLogFile);
+            int copied = lastLineEnd(source);
+            long copiedChecksum = DataFileWatcher.lastLineChecksum(source, copied);
+            int removedRows;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                removedRows = copyRows(source, 0, copied, dropWithArchived, out);
+            }
+
+            synchronized (timeLogLock) {
+                closeAppender();
+                ByteBuffer current = AttendanceFileParser.map(timeLogFile);
+                boolean appendedOnly = current.limit() >= copied
+                        && DataFileWatcher.lastLineChecksum(current, copied) == copiedChecksum;
+                if (!appendedOnly) {
+                    // Another process rewrote the file meanwhile, so the archived ranges no
+                    // longer fit it; copy it again as it is now
+                    Files.write(tempFile, new byte[0]);
+                    removedRows = 0;
+                    alreadyArchived[0] = 0;
+                }
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile, StandardOpenOption.APPEND))) {
+                    removedRows += appendedOnly
+                            ? copyRows(current, copied, current.limit(), dropWithArchived, out)
+                            : copyRows(current, 0, current.limit(), drop, out);
+                }
+                Files.move(tempFile, timeLogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                recordTimeLogBaseline(AttendanceFileParser.map(timeLogFile));
+                onReplaced.run();
+            }
+            return new int[]{removedRows - alreadyArchived[0], alreadyArchived[0]};
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Copies the rows in [start, end) that drop does not match, each ending with a line
+    // break; the header row is always kept. Returns how many rows were dropped.
+    private static int copyRows(ByteBuffer source, int start, int end, RowFilter drop, OutputStream out) throws IOException {
+        int removedRows = 0;
+        int rowStart = start;
+        while (rowStart < end) {
+            int rowEnd = rowStart;
+            while (rowEnd < end && source.get(rowEnd) != '\n') {
+                rowEnd++;
+            }
+            byte[] row = new byte[rowEnd - rowStart];
+            source.get(rowStart, row);
+            if (rowStart > 0 && drop.test(new String(row, StandardCharsets.UTF_8), rowStart)) {
+                removedRows++;
+            } else {
+                out.write(row);
+                out.write('\n');
+            }
+            rowStart = rowEnd + 1;
+        }
+        return removedRows;
+    }
+
+    // Whether one of the ranges [start, end), sorted by start, holds the offset
+    private static boolean covers(List<long[]> ranges, long offset) {
+        int low = 0;
+        int high = ranges.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long[] range = ranges.get(middle);
+            if (offset < range[0]) {
+                high = middle - 1;
+            } else if (offset >= range[1]) {
+                low = middle + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Offset just past the last line break (0 if there is none)
+    private static int lastLineEnd(ByteBuffer buffer) {
+        for (int i = buffer.limit() - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Picks the attendance rows a rewrite leaves out
+    private interface RowFilter {
+        boolean test(String row, long offset);
+    }
+
+    private void ensureEmployeesLoaded() {
+        if (employees != null) {
+            return;
+        }
+
+        employees = new LinkedHashMap<>();
+        employeeRows = new LinkedHashMap<>();
+        try (InputStream is = openEmployeeFile()) {
+            if (is == null) {
+                System.err.println("WARNING: Employee data file not found: " + EMPLOYEE_DATA_FILE);
+                return;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+
+            // Skip header line
+            reader.readLine();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Employee employee = EmployeeRecordFormat.parse(line);
+                if (employee != null) {
+                    employees.put(employee.getEmployeeNumber(), employee);
+                    employeeRows.put(employee.getEmployeeNumber(), line);
+                }
+            }
+            System.out.println("Successfully loaded " + employees.size() + " employees from file");
+        } catch (IOException e) {
+            System.err.println("Error reading employee data: " + e.getMessage());
+            e.printStackTrace();
+        }
+        replayEmployeeLog();
+    }
+
+    // Applies logged changes that have not been folded into the employee file yet
+    private void replayEmployeeLog() {
+        Path employeeFile = getEmployeeFilePath();
+        if (employeeFile == null || !Files.isDirectory(derivedDirectory(employeeFile, EMPLOYEE_LOG_DIRECTORY))) {
+            return;
+        }
+
+        try {
+            employeeLog().replay(new EmployeeMutationLog.Handler() {
+                @Override
+                public void upsert(String row) {
+                    Employee employee = EmployeeRecordFormat.parse(row);
+                    if (employee != null) {
+                        employees.put(employee.getEmployeeNumber(), employee);
+                        employeeRows.put(employee.getEmployeeNumber(), row);
+                    }
+                }
+
+                @Override
+                public void delete(String employeeNumber) {
+                    employees.remove(employeeNumber);
+                    employeeRows.remove(employeeNumber);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error replaying employee log: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // The data directory copy if there is one, else the classpath copy
+    private InputStream openEmployeeFile() throws IOException {
+        Path employeeFile = getEmployeeFilePath();
+        if (employeeFile != null && Files.exists(employeeFile)) {
+            return Files.newInputStream(employeeFile);
+        }
+        return getClass().getClassLoader().getResourceAsStream(EMPLOYEE_DATA_FILE);
+    }
+
+    // Caller holds this
+    private EmployeeMutationLog employeeLog() throws IOException {
+        if (employeeLog == null) {
+            Path employeeFile = getEmployeeFilePath();
+            if (employeeFile == null) {
+                throw new IOException("Employee file is not writable: " + EMPLOYEE_DATA_FILE);
+            }
+            employeeLog = new EmployeeMutationLog(derivedDirectory(employeeFile, EMPLOYEE_LOG_DIRECTORY),
+                    getBackupStore());
+        }
+        return employeeLog;
+    }
+
+    // The named directory of derived files. Earlier versions kept it next to the data file,
+    // which by default is the resource tree; such a directory is moved over first so no
+    // logged change, backup or archive is lost. If it cannot be moved it stays in use.
+    private static Path derivedDirectory(Path dataFile, String name) {
+        Path directory = PayrollConfig.getCacheDirectory().toAbsolutePath().resolve(name);
+        Path previous = dataFile.toAbsolutePath().resolveSibling(name);
+        if (previous.equals(directory) || !Files.isDirectory(previous) || Files.exists(directory)) {
+            return directory;
+        }
+        try {
+            Files.createDirectories(directory.getParent());
+            Files.move(previous, directory);
+            System.out.println("Moved " + previous + " to " + directory);
+            return directory;
+        } catch (IOException e) {
+            System.err.println("Could not move " + previous + " to " + directory + ", still using it: " + e.getMessage());
+            return previous;
+        }
+    }
+
+    // Logs an added or updated row, or (when row is null) a deleted employee; caller holds this
+    private boolean logEmployeeChange(String row, String deletedEmployeeNumber) {
+        try {
+            if (row != null) {
+                employeeLog().appendUpsert(row);
+            } else {
+                employeeLog().appendDelete(deletedEmployeeNumber);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving employee change: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Caller holds this
+    private void scheduleCompactionIfDue() {
+        if (!compactionPending && employeeLog.getRecordCount() >= PayrollConfig.getEmployeeLogCompactThreshold()) {
+            compactionPending = true;
+            compactor.execute(this::compactEmployeeLog);
+        }
+    }
+
+    /*
+     * Folds the logged changes into the employee file. Mutations only wait while the log
+     * is rotated and the rows are copied; the file is written outside the lock. A crash
+     * at any point leaves either the old file plus the rotated log, or the new file plus
+     * a rotated log whose records it already contains, and both replay to the same state.
+     */
+    private void compactEmployeeLog() {
+        synchronized (compactionLock) {
+            long generation;
+            Map<String, String> rows;
+            EmployeeMutationLog log;
+            synchronized (this) {
+                compactionPending = false;
+                log = employeeLog;
+                try {
+                    generation = log.rotate();
+                } catch (IOException e) {
+                    System.err.println("Error rotating employee log: " + e.getMessage());
+                    return;
+                }
+                rows = new LinkedHashMap<>(employeeRows);
+            }
+
+            Path employeeFile = getEmployeeFilePath();
+            try {
+                log.archiveBase(employeeFile, generation);
+                writeEmployeeFile(employeeFile, rows.values());
+                ownEmployeeRows = rows;
+                log.writeCheckpoint(generation);
+            } catch (IOException e) {
+                // The rotated records are still replayed on the next load
+                System.err.println("Error compacting employee log: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Writes the rows to the employee file, replacing it atomically
+    private static void writeEmployeeFile(Path employeeFile, Collection<String> rows) throws IOException {
+        Path directory = employeeFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path tempFile = Files.createTempFile(directory, "employee-data", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.write(EmployeeRecordFormat.HEADER);
+            writer.newLine();
+            for (String row : rows) {
+                writer.write(row);
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, employeeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Successfully wrote " + rows.size() + " employees to file");
+    }
+
+    // Keep a backup generation before rewriting; only the chunks that changed are stored
+    private void backupDataFile(Path dataFile) {
+        BackupStore backups = getBackupStore();
+        if (backups == null) {
+            return;
+        }
+        try {
+            backups.backup(dataFile);
+        } catch (IOException e) {
+            System.err.println("Failed to create backup: " + e.getMessage());
+        }
+    }
+}
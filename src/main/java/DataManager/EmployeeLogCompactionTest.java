@@ -0,0 +1,121 @@
+package DataManager;
+
+import Core.Employee;
+import Core.PayrollConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Checks that the file watcher does not report the repository's own compaction of the
+ * employee log as changes made by another process: employees are updated until the log
+ * is compacted, one is deleted right after the compacted file lands, and once the
+ * watcher has seen the rewrite the deleted employee must still be gone and the others
+ * must keep their latest values.
+ *
+ * Runs on a copy of the data files in a temporary directory unless -Dpayroll.data.dir
+ * is set.
+ */
+public class EmployeeLogCompactionTest {
+    private static final int COMPACT_THRESHOLD = 5;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Starting employee log compaction test");
+
+        if (System.getProperty(PayrollConfig.DATA_DIR) == null) {
+            Path dataDirectory = Files.createTempDirectory("payroll-compaction");
+            copyResource(DataRepository.EMPLOYEE_DATA_FILE, dataDirectory);
+            copyResource(DataRepository.TIME_LOG_FILE, dataDirectory);
+            System.setProperty(PayrollConfig.DATA_DIR, dataDirectory.toString());
+        }
+        System.setProperty(PayrollConfig.EMPLOYEE_LOG_COMPACT_THRESHOLD, String.valueOf(COMPACT_THRESHOLD));
+
+        DataRepository repository = DataRepository.getInstance();
+        List<Employee> employees = repository.getEmployees();
+        if (employees.size() < COMPACT_THRESHOLD + 1) {
+            System.out.println("Test needs at least " + (COMPACT_THRESHOLD + 1) + " employees");
+            return;
+        }
+
+        // Forward watcher deltas to the repository the way PayrollSystem does
+        DataFileWatcher watcher = new DataFileWatcher(repository.getEmployeeFilePath(), repository.getTimeLogFilePath(),
+                new DataChangeListener() {
+                    @Override
+                    public void employeesChanged(List<Employee> added, List<Employee> updated, List<String> removed) {
+                        repository.applyEmployeeChanges(added, updated, removed);
+                    }
+                }, () -> { });
+        watcher.start();
+
+        // Enough updates to trigger a compaction
+        String marker = "Compacted" + System.nanoTime();
+        for (int i = 0; i < COMPACT_THRESHOLD; i++) {
+            repository.updateEmployee(withLastName(employees.get(i), marker));
+        }
+
+        // Delete as soon as the compacted file is on disk, before the watcher settles
+        Path employeeFile = repository.getEmployeeFilePath();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.readString(employeeFile).contains(marker)) {
+            if (System.currentTimeMillis() > deadline) {
+                System.out.println("Test FAILED: the employee log was not compacted");
+                System.exit(1);
+            }
+            Thread.sleep(1);
+        }
+        Employee deleted = employees.get(0);
+        Employee updatedAfterCompaction = withLastName(employees.get(1), marker + "-after");
+        repository.deleteEmployee(deleted.getEmployeeNumber());
+        repository.updateEmployee(updatedAfterCompaction);
+
+        // Give the watcher time to settle and apply what it saw
+        Thread.sleep(1000);
+        watcher.close();
+
+        boolean deletedStaysDeleted = repository.getEmployee(deleted.getEmployeeNumber()) == null;
+        Employee current = repository.getEmployee(updatedAfterCompaction.getEmployeeNumber());
+        boolean updateKept = current != null && updatedAfterCompaction.getLastName().equals(current.getLastName());
+        System.out.println("Deleted employee stays deleted: " + (deletedStaysDeleted ? "SUCCESS" : "FAILED"));
+        System.out.println("Update after compaction kept: " + (updateKept ? "SUCCESS" : "FAILED"));
+
+        System.out.println("Test completed");
+        System.exit(deletedStaysDeleted && updateKept ? 0 : 1);
+    }
+
+    private static Employee withLastName(Employee employee, String lastName) {
+        return new Employee(
+                employee.getEmployeeNumber(),
+                lastName,
+                employee.getFirstName(),
+                employee.getBirthDate(),
+                employee.getAddress(),
+                employee.getPhoneNumber(),
+                employee.getSssNumber(),
+                employee.getPhilhealthNumber(),
+                employee.getTinNumber(),
+                employee.getPagIbigNumber(),
+                employee.getStatus(),
+                employee.getPosition(),
+                employee.getImmediateSupervisor(),
+                employee.getBasicSalary(),
+                employee.getRiceSubsidy(),
+                employee.getPhoneAllowance(),
+                employee.getClothingAllowance(),
+                employee.getGrossSemiMonthlyRate(),
+                employee.getHourlyRate()
+        );
+    }
+
+    private static void copyResource(String fileName, Path directory) throws IOException {
+        try (InputStream in = EmployeeLogCompactionTest.class.getClassLoader().getResourceAsStream(fileName)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + fileName);
+            }
+            Files.copy(in, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
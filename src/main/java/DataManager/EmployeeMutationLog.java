@@ -0,0 +1,439 @@
+package DataManager;
+
+import FileReaders.EmployeeRecordFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log for employee changes. Instead of rewriting employee-data.tsv, each
+ * change is appended (and forced to disk) as one line:
+ * <pre>
+ *   crc32 (hex) TAB epoch millis TAB U TAB full employee row     (add or update)
+ *   crc32 (hex) TAB epoch millis TAB D TAB employee number       (delete)
+ * </pre>
+ * The current employees are the TSV plus the replayed log. Records are last-writer-wins
+ * upserts and removes, so replaying a record that is already in the TSV is harmless.
+ * Only the end of the active log can be torn by a crash; it is cut off before the next
+ * append. A damaged record anywhere else is skipped and the records after it still apply.
+ *
+ * Files, kept in a directory of their own (DataRepository puts it in the cache directory):
+ * <pre>
+ *   active.wal      records since the last rotation
+ *   wal-N.log       records of generation N, rotated out by compaction
+ *   base-N          the backup generation (see BackupStore) holding the TSV as it was
+ *                   before generation N was folded into it
+ *   checkpoint      the highest generation already folded into the TSV
+ * </pre>
+ * Keeping the bases and rotated logs allows recovering the employees as of any time.
+ */
+public class EmployeeMutationLog implements AutoCloseable {
+    private static final String ACTIVE_LOG = "active.wal";
+    private static final String CHECKPOINT = "checkpoint";
+
+    /**
+     * Receives replayed records
+     */
+    public interface Handler {
+        void upsert(String row);
+
+        void delete(String employeeNumber);
+    }
+
+    private final Path directory;
+    private final BackupStore backups;
+    private FileChannel channel;
+    private int recordCount;
+
+    /**
+     * @param directory Where the log files are kept (created if missing)
+     * @param backups Where the TSV is backed up before each compaction
+     * @throws IOException If the directory or active log cannot be opened
+     */
+    public EmployeeMutationLog(Path directory, BackupStore backups) throws IOException {
+        this.directory = directory;
+        this.backups = backups;
+        Files.createDirectories(directory);
+        openActiveLog();
+    }
+
+    /**
+     * Logs an added or updated employee and forces it to disk
+     * @param row The full employee row (see EmployeeRecordFormat)
+     */
+    public synchronized void appendUpsert(String row) throws IOException {
+        append('U', row);
+    }
+
+    /**
+     * Logs several added or updated employees with one write and one force
+     * @param rows The full employee rows (see EmployeeRecordFormat)
+     */
+    public synchronized void appendUpserts(List<String> rows) throws IOException {
+        StringBuilder records = new StringBuilder(rows.size() * 256);
+        long now = System.currentTimeMillis();
+        for (String row : rows) {
+            records.append(record(now, 'U', row));
+        }
+        write(records.toString(), rows.size());
+    }
+
+    /**
+     * Logs several added or updated and deleted employees with one write and one force
+     * @param rows The full rows of added or updated employees (see EmployeeRecordFormat)
+     * @param deletedEmployeeNumbers The employees that were removed
+     */
+    public synchronized void appendChanges(List<String> rows, List<String> deletedEmployeeNumbers) throws IOException {
+        StringBuilder records = new StringBuilder(rows.size() * 256 + deletedEmployeeNumbers.size() * 32);
+        long now = System.currentTimeMillis();
+        for (String row : rows) {
+            records.append(record(now, 'U', row));
+        }
+        for (String employeeNumber : deletedEmployeeNumbers) {
+            records.append(record(now, 'D', employeeNumber));
+        }
+        write(records.toString(), rows.size() + deletedEmployeeNumbers.size());
+    }
+
+    /**
+     * Logs a deleted employee and forces it to disk
+     * @param employeeNumber The employee that was removed
+     */
+    public synchronized void appendDelete(String employeeNumber) throws IOException {
+        append('D', employeeNumber);
+    }
+
+    /**
+     * @return Records in the active log, i.e. not yet rotated out for compaction
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Replays the records that the TSV does not include yet: rotated generations newer
+     * than the checkpoint, then the active log. A torn record at the end of the active
+     * log (from a crash mid-write) is dropped.
+     * @param handler Receives the records in order
+     */
+    public synchronized void replay(Handler handler) throws IOException {
+        long checkpoint = readCheckpoint();
+        for (long generation : generations()) {
+            if (generation > checkpoint) {
+                readRecords(logFile(generation), Long.MAX_VALUE, handler);
+            }
+        }
+        int replayed = readRecords(directory.resolve(ACTIVE_LOG), Long.MAX_VALUE, handler);
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " employee changes from " + directory);
+        }
+    }
+
+    /**
+     * Moves the active log aside as the next generation and starts a new one, so the
+     * rotated records can be folded into the TSV while new changes keep being logged
+     * @return The generation number of the rotated log
+     */
+    public synchronized long rotate() throws IOException {
+        List<Long> generations = generations();
+        long generation = generations.isEmpty() ? Math.max(1, readCheckpoint() + 1)
+                : generations.get(generations.size() - 1) + 1;
+
+        channel.force(true);
+        channel.close();
+        Files.move(directory.resolve(ACTIVE_LOG), logFile(generation), StandardCopyOption.ATOMIC_MOVE);
+        openActiveLog();
+        return generation;
+    }
+
+    /**
+     * Backs up the TSV before a generation is folded into it. Only the chunks that changed
+     * since the previous compaction are stored.
+     */
+    public void archiveBase(Path employeeFile, long generation) throws IOException {
+        if (Files.exists(employeeFile)) {
+            long backupGeneration = backups.backup(employeeFile);
+            Path tempFile = Files.createTempFile(directory, "base", ".tmp");
+            Files.writeString(tempFile, Long.toString(backupGeneration));
+            Files.move(tempFile, directory.resolve("base-" + generation), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Records that the TSV now includes every generation up to the given one
+     */
+    public void writeCheckpoint(long generation) throws IOException {
+        Path tempFile = Files.createTempFile(directory, "checkpoint", ".tmp");
+        Files.writeString(tempFile, Long.toString(generation));
+        Files.move(tempFile, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rebuilds the employee rows as they were at a point in time
+     * @param employeeFile The current TSV
+     * @param timestampMillis The point in time (epoch millis)
+     * @return The rows keyed by employee number, in file order
+     */
+    public synchronized Map<String, String> recoverAsOf(Path employeeFile, long timestampMillis) throws IOException {
+        Map<String, String> rows = new LinkedHashMap<>();
+        Handler handler = new Handler() {
+            @Override
+            public void upsert(String row) {
+                rows.put(EmployeeRecordFormat.employeeNumber(row), row);
+            }
+
+            @Override
+            public void delete(String employeeNumber) {
+                rows.remove(employeeNumber);
+            }
+        };
+
+        // Start from the base of the first folded generation that has changes after that
+        // time. Generations not folded yet are replayed over the current TSV below.
+        long checkpoint = readCheckpoint();
+        for (long generation : generations()) {
+            if (generation > checkpoint) {
+                break;
+            }
+            if (lastTimestamp(logFile(generation)) > timestampMillis) {
+                Path base = directory.resolve("base-" + generation);
+                if (!Files.exists(base)) {
+                    throw new IOException("No base snapshot kept for generation " + generation);
+                }
+                long backupGeneration = Long.parseLong(Files.readString(base).trim());
+                try (InputStream in = backups.open(employeeFile.getFileName().toString(), backupGeneration)) {
+                    readRows(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), rows);
+                }
+                readRecords(logFile(generation), timestampMillis, handler);
+                return rows;
+            }
+        }
+
+        // Everything folded into the TSV is older, so start from it
+        if (Files.exists(employeeFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(employeeFile, StandardCharsets.UTF_8)) {
+                readRows(reader, rows);
+            }
+        }
+        for (long generation : generations()) {
+            if (generation > checkpoint) {
+                readRecords(logFile(generation), timestampMillis, handler);
+            }
+        }
+        readRecords(directory.resolve(ACTIVE_LOG), timestampMillis, handler);
+        return rows;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+    private void append(char operation, String payload) throws IOException {
+        write(record(System.currentTimeMillis(), operation, payload), 1);
+    }
+
+    // One line: crc32 of the rest, then timestamp, operation and payload
+    private static String record(long timestampMillis, char operation, String payload) {
+        String body = timestampMillis + "\t" + operation + "\t" + payload;
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue()) + "\t" + body + "\n";
+    }
+
+    private void write(String records, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        recordCount += count;
+    }
+
+    private void openActiveLog() throws IOException {
+        Path activeLog = directory.resolve(ACTIVE_LOG);
+        channel = FileChannel.open(activeLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        // Count the records and find where the last intact one ends; whatever follows
+        // it is a record torn by a crash
+        long[] validLength = {0};
+        boolean[] terminated = {true};
+        int[] count = {0};
+        readLines(activeLog, (line, end, hasLineBreak) -> {
+            if (decode(line) != null) {
+                validLength[0] = end;
+                terminated[0] = hasLineBreak;
+                count[0]++;
+            }
+            return true;
+        });
+        recordCount = count[0];
+        if (validLength[0] < channel.size()) {
+            System.err.println("Dropping incomplete employee change at the end of " + activeLog);
+            channel.truncate(validLength[0]);
+        }
+        if (!terminated[0]) {
+            // The record is intact but its line break never made it; the next append
+            // would otherwise run on into it
+            write("\n", 0);
+        }
+    }
+
+    // Applies the records with a timestamp up to the limit; returns how many were applied
+    private static int readRecords(Path logFile, long maxTimestamp, Handler handler) throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        int[] applied = {0};
+        readLines(logFile, (line, end, terminated) -> {
+            String[] record = decode(line);
+            if (record == null) {
+                if (terminated) {
+                    System.err.println("Skipping damaged employee change in " + logFile);
+                }
+                // An unterminated bad line is the torn end of the log
+                return true;
+            }
+            if (Long.parseLong(record[0]) > maxTimestamp) {
+                return false;
+            }
+            if (record[1].equals("U")) {
+                handler.upsert(record[2]);
+            } else {
+                handler.delete(record[2]);
+            }
+            applied[0]++;
+            return true;
+        });
+        return applied[0];
+    }
+
+    // Receives each line of a log file with the offset just past it
+    private interface LineVisitor {
+        // Returns false to stop reading
+        boolean visit(String line, long end, boolean terminated) throws IOException;
+    }
+
+    // Splits on '\n' counting real bytes, so offsets stay exact whatever the encoding or
+    // line endings, and reports whether each line had its line break
+    private static void readLines(Path file, LineVisitor visitor) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                offset++;
+                if (b == '\n') {
+                    if (!visitor.visit(line.toString(StandardCharsets.UTF_8), offset, true)) {
+                        return;
+                    }
+                    line.reset();
+                } else {
+                    line.write(b);
+                }
+            }
+            if (line.size() > 0) {
+                visitor.visit(line.toString(StandardCharsets.UTF_8), offset, false);
+            }
+        }
+    }
+
+    // Returns {timestamp, operation, payload}, or null if the line is torn or damaged
+    private static String[] decode(String line) {
+        int first = line.indexOf('\t');
+        int second = first < 0 ? -1 : line.indexOf('\t', first + 1);
+        int third = second < 0 ? -1 : line.indexOf('\t', second + 1);
+        if (third < 0) {
+            return null;
+        }
+
+        String body = line.substring(first + 1);
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        if (!Long.toHexString(crc.getValue()).equals(line.substring(0, first))) {
+            return null;
+        }
+
+        String operation = line.substring(second + 1, third);
+        if (!operation.equals("U") && !operation.equals("D")) {
+            return null;
+        }
+        return new String[]{line.substring(first + 1, second), operation, line.substring(third + 1)};
+    }
+
+    private static long lastTimestamp(Path logFile) throws IOException {
+        long[] last = {Long.MIN_VALUE};
+        readLines(logFile, (line, end, terminated) -> {
+            String[] record = decode(line);
+            if (record != null) {
+                last[0] = Long.parseLong(record[0]);
+            }
+            return true;
+        });
+        return last[0];
+    }
+
+    private static void readRows(BufferedReader reader, Map<String, String> rows) throws IOException {
+        reader.readLine(); // Header
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                rows.put(EmployeeRecordFormat.employeeNumber(line), line);
+            }
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpoint).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid employee log checkpoint, replaying every generation");
+            return 0;
+        }
+    }
+
+    // Rotated generation numbers in ascending order
+    private List<Long> generations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(4, name.length() - 4)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve("wal-" + generation + ".log");
+    }
+}
@@ -0,0 +1,125 @@
+package DataManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a bulk import did: how many rows were read and stored, which rows were
+ * rejected and why, and how fast it went.
+ */
+public class ImportReport {
+    private int employeesRead;
+    private int employeesImported;
+    private int timeLogsRead;
+    private int timeLogsImported;
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+    private boolean committed;
+    private long elapsedNanos;
+
+    void employeeRead() {
+        employeesRead++;
+    }
+
+    void timeLogRead() {
+        timeLogsRead++;
+    }
+
+    void reject(String file, int lineNumber, String line, String reason) {
+        rejectedRows.add(new RejectedRow(file, lineNumber, line, reason));
+    }
+
+    void finish(int employeesImported, int timeLogsImported, boolean committed, long elapsedNanos) {
+        this.employeesImported = employeesImported;
+        this.timeLogsImported = timeLogsImported;
+        this.committed = committed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getEmployeesRead() {
+        return employeesRead;
+    }
+
+    public int getEmployeesImported() {
+        return employeesImported;
+    }
+
+    public int getTimeLogsRead() {
+        return timeLogsRead;
+    }
+
+    public int getTimeLogsImported() {
+        return timeLogsImported;
+    }
+
+    public List<RejectedRow> getRejectedRows() {
+        return Collections.unmodifiableList(rejectedRows);
+    }
+
+    /**
+     * @return false if the batch could not be stored (nothing was imported)
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * @return Rows read (accepted or rejected) per second over the whole import
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return (employeesRead + timeLogsRead) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d of %d employees and %d of %d time logs in %d ms (%.0f rows/s), %d rejected",
+                committed ? "Imported" : "Failed to import",
+                employeesImported, employeesRead, timeLogsImported, timeLogsRead,
+                getElapsedMillis(), getRowsPerSecond(), rejectedRows.size());
+    }
+
+    /**
+     * A row that was left out of the import
+     */
+    public static class RejectedRow {
+        private final String file;
+        private final int lineNumber;
+        private final String line;
+        private final String reason;
+
+        RejectedRow(String file, int lineNumber, String line, String reason) {
+            this.file = file;
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return file + ":" + lineNumber + ": " + reason + ": " + line;
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package DataManager;
+
+import Core.Employee;
+import Core.PayrollConfig;
+import Core.TimeLog;
+import Core.TimeLogStore;
+import FileReaders.LoadProgressListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Stores employees and time logs in an embedded SQL database (H2 by default, see
+ * {@link PayrollConfig#getStorageJdbcUrl()}). Compared with the flat files:
+ *
+ * - an employee change updates one row instead of logging and later rewriting the file
+ * - deleting an employee removes their time logs with one indexed DELETE
+ * - date range queries use the (employee_number, log_date) and log_date indexes
+ * - every change is one transaction, so a crash never leaves half of it behind
+ *
+ * The first time the database is opened empty, the current employee and attendance
+ * files are imported into it in one transaction. Employees and the full time log list
+ * are cached the same way {@link DataRepository} caches them.
+ */
+public final class JdbcPayrollRepository implements PayrollRepository {
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS employees ("
+                + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "employee_number VARCHAR(64) NOT NULL, "
+                + "last_name VARCHAR(255), first_name VARCHAR(255), birth_date VARCHAR(32), "
+                + "address VARCHAR(1024), phone_number VARCHAR(64), sss_number VARCHAR(64), "
+                + "philhealth_number VARCHAR(64), tin_number VARCHAR(64), pagibig_number VARCHAR(64), "
+                + "employment_status VARCHAR(64), job_position VARCHAR(255), immediate_supervisor VARCHAR(255), "
+                + "basic_salary DOUBLE PRECISION, rice_subsidy DOUBLE PRECISION, phone_allowance DOUBLE PRECISION, "
+                + "clothing_allowance DOUBLE PRECISION, gross_semi_monthly_rate DOUBLE PRECISION, "
+                + "hourly_rate DOUBLE PRECISION)",
+        "CREATE UNIQUE INDEX IF NOT EXISTS employees_number ON employees (employee_number)",
+        "CREATE TABLE IF NOT EXISTS time_logs ("
+                + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "employee_number VARCHAR(64) NOT NULL, "
+                + "log_date DATE, time_in TIME, time_out TIME)",
+        "CREATE INDEX IF NOT EXISTS time_logs_employee_date ON time_logs (employee_number, log_date)",
+        "CREATE INDEX IF NOT EXISTS time_logs_date ON time_logs (log_date)"
+    };
+
+    private static final String EMPLOYEE_COLUMNS = "employee_number, last_name, first_name, birth_date, "
+            + "address, phone_number, sss_number, philhealth_number, tin_number, pagibig_number, "
+            + "employment_status, job_position, immediate_supervisor, basic_salary, rice_subsidy, "
+            + "phone_allowance, clothing_allowance, gross_semi_monthly_rate, hourly_rate";
+    private static final String INSERT_EMPLOYEE = "INSERT INTO employees (" + EMPLOYEE_COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_EMPLOYEE = "UPDATE employees SET last_name = ?, first_name = ?, "
+            + "birth_date = ?, address = ?, phone_number = ?, sss_number = ?, philhealth_number = ?, "
+            + "tin_number = ?, pagibig_number = ?, employment_status = ?, job_position = ?, "
+            + "immediate_supervisor = ?, basic_salary = ?, rice_subsidy = ?, phone_allowance = ?, "
+            + "clothing_allowance = ?, gross_semi_monthly_rate = ?, hourly_rate = ? "
+            + "WHERE employee_number = ?";
+    private static final String INSERT_TIME_LOG =
+            "INSERT INTO time_logs (employee_number, log_date, time_in, time_out) VALUES (?, ?, ?, ?)";
+
+    // Time log rows sent per executeBatch during imports
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    // Files H2 keeps for a database file name
+    private static final String[] DATABASE_FILE_SUFFIXES = {".mv.db", ".trace.db"};
+
+    private static JdbcPayrollRepository instance;
+
+    private final String url;
+
+    // All guarded by this; the connection is opened on first use and never auto-commits
+    private Connection connection;
+    private Map<String, Employee> employees;
+    private TimeLogStore timeLogs;
+    private long version;
+
+    private JdbcPayrollRepository(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return The shared repository for the configured JDBC URL
+     */
+    public static synchronized JdbcPayrollRepository getInstance() {
+        if (instance == null) {
+            moveDatabaseOutOfResources();
+            instance = new JdbcPayrollRepository(PayrollConfig.getStorageJdbcUrl());
+        }
+        return instance;
+    }
+
+    // Earlier versions put the default database next to the data files, which by default
+    // is the resource tree. Move it to the default location, or opening there would start
+    // an empty database and import the files again without the changes made since.
+    private static void moveDatabaseOutOfResources() {
+        String configuredUrl = System.getProperty(PayrollConfig.STORAGE_JDBC_URL);
+        Path dataDirectory = PayrollConfig.getDataDirectory();
+        if ((configuredUrl != null && !configuredUrl.isBlank()) || dataDirectory == null) {
+            return;
+        }
+        Path database = PayrollConfig.getDefaultDatabaseFile();
+        Path previous = dataDirectory.toAbsolutePath().resolve(database.getFileName());
+        for (String suffix : DATABASE_FILE_SUFFIXES) {
+            Path from = Path.of(previous + suffix);
+            Path to = Path.of(database + suffix);
+            if (from.equals(to) || !Files.exists(from) || Files.exists(to)) {
+                continue;
+            }
+            try {
+                Files.move(from, to);
+                System.out.println("Moved " + from + " to " + to);
+            } catch (IOException e) {
+                System.err.println("Could not move " + from + " to " + to + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    @Override
+    public synchronized List<Employee> getEmployees() {
+        if (!ensureEmployeesLoaded()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(employees.values());
+    }
+
+    @Override
+    public synchronized List<Employee> reloadEmployees() {
+        // If the query fails, the employees loaded before stay cached
+        Map<String, Employee> loaded = loadEmployees();
+        if (loaded != null) {
+            employees = loaded;
+            version++;
+        }
+        return employees != null ? new ArrayList<>(employees.values()) : new ArrayList<>();
+    }
+
+    @Override
+    public synchronized Employee getEmployee(String employeeNumber) {
+        if (!ensureEmployeesLoaded()) {
+            return null;
+        }
+        return employees.get(employeeNumber);
+    }
+
+    @Override
+    public synchronized boolean addEmployee(Employee employee) {
+        if (!ensureEmployeesLoaded()) {
+            return false;
+        }
+        if (employees.containsKey(employee.getEmployeeNumber())) {
+            System.err.println("Employee already exists: " + employee.getEmployeeNumber());
+            return false;
+        }
+
+        try (PreparedStatement insert = connection().prepareStatement(INSERT_EMPLOYEE)) {
+            bindEmployee(insert, employee);
+            insert.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(e, "Error saving employee data");
+            return false;
+        }
+
+        employees.put(employee.getEmployeeNumber(), employee);
+        version++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updateEmployee(Employee employee) {
+        if (!ensureEmployeesLoaded()) {
+            return false;
+        }
+        if (!employees.containsKey(employee.getEmployeeNumber())) {
+            System.out.println("Employee not found for update, adding as new: " + employee.getEmployeeNumber());
+            return addEmployee(employee);
+        }
+
+        try (PreparedStatement update = connection().prepareStatement(UPDATE_EMPLOYEE)) {
+            bindEmployeeValues(update, employee, 1);
+            update.setString(19, employee.getEmployeeNumber());
+            update.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(e, "Error updating employee data");
+            return false;
+        }
+
+        employees.put(employee.getEmployeeNumber(), employee);
+        version++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteEmployee(String employeeNumber) {
+        if (!ensureEmployeesLoaded()) {
+            return false;
+        }
+        if (!employees.containsKey(employeeNumber)) {
+            System.err.println("Employee not found for deletion: " + employeeNumber);
+            return false;
+        }
+
+        int removedRows;
+        try (PreparedStatement deleteLogs = connection().prepareStatement("DELETE FROM time_logs WHERE employee_number = ?");
+             PreparedStatement deleteEmployee = connection.prepareStatement("DELETE FROM employees WHERE employee_number = ?")) {
+            deleteLogs.setString(1, employeeNumber);
+            removedRows = deleteLogs.executeUpdate();
+            deleteEmployee.setString(1, employeeNumber);
+            deleteEmployee.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(e, "Error deleting employee");
+            return false;
+        }
+
+        employees.remove(employeeNumber);
+        if (timeLogs != null) {
+            timeLogs.removeEmployee(employeeNumber);
+        }
+        version++;
+        System.out.println("Removed " + removedRows + " time logs for employee " + employeeNumber);
+        return true;
+    }
+
+    /**
+     * Inserts the whole batch in one transaction: either all of it is stored or none
+     */
+    @Override
+    public synchronized boolean importBatch(List<Employee> newEmployees, List<TimeLog> newTimeLogs) {
+        if (!ensureEmployeesLoaded()) {
+            return false;
+        }
+        for (Employee employee : newEmployees) {
+            if (employees.containsKey(employee.getEmployeeNumber())) {
+                System.err.println("Employee already exists: " + employee.getEmployeeNumber());
+                return false;
+            }
+        }
+
+        try {
+            insertBatch(connection(), newEmployees, newTimeLogs);
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(e, "Error saving imported data");
+            return false;
+        }
+
+        for (Employee employee : newEmployees) {
+            employees.put(employee.getEmployeeNumber(), employee);
+        }
+        if (timeLogs != null) {
+            timeLogs.addAll(newTimeLogs);
+        }
+        version++;
+        return true;
+    }
+
+    @Override
+    public synchronized TimeLogStore getTimeLogs(LoadProgressListener progressListener) {
+        if (timeLogs == null) {
+            timeLogs = loadTimeLogs(progressListener);
+        }
+        return timeLogs;
+    }
+
+    @Override
+    public synchronized TimeLogStore reloadTimeLogs(LoadProgressListener progressListener) {
+        timeLogs = loadTimeLogs(progressListener);
+        version++;
+        return timeLogs;
+    }
+
+    /**
+     * Reads the time logs dated within a range through the log_date index. The result is
+     * read before this returns, so the stream holds no database resources.
+     */
+    @Override
+    public synchronized Stream<TimeLog> streamTimeLogs(LocalDate startDate, LocalDate endDate) {
+        List<TimeLog> matching = new ArrayList<>();
+        try (PreparedStatement query = connection().prepareStatement(
+                "SELECT employee_number, log_date, time_in, time_out FROM time_logs "
+                        + "WHERE log_date BETWEEN ? AND ? ORDER BY log_date, id")) {
+            query.setObject(1, startDate);
+            query.setObject(2, endDate);
+            try (ResultSet results = query.executeQuery()) {
+                while (results.next()) {
+                    matching.add(readTimeLog(results));
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(e, "Error reading time log data");
+        }
+        return matching.stream();
+    }
+
+    /**
+     * Inserts the punches with one batched statement and one commit
+     */
+    @Override
+    public synchronized boolean appendTimeLogs(List<TimeLog> timeLogs) {
+        try (PreparedStatement insert = connection().prepareStatement(INSERT_TIME_LOG)) {
+            for (TimeLog timeLog : timeLogs) {
+                bindTimeLog(insert, timeLog);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(e, "Error saving time log data");
+            return false;
+        }
+
+        if (this.timeLogs != null) {
+            this.timeLogs.addAll(timeLogs);
+        }
+        version++;
+        return true;
+    }
+
+    /**
+     * Commits are already durable for most databases; H2 is asked to sync its file too
+     */
+    @Override
+    public synchronized boolean syncTimeLogs() {
+        if (!url.startsWith("jdbc:h2:")) {
+            return true;
+        }
+        try (Statement statement = connection().createStatement()) {
+            statement.execute("CHECKPOINT SYNC");
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error syncing time log data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Caller holds this
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            Connection opened = DriverManager.getConnection(url);
+            try {
+                opened.setAutoCommit(false);
+                try (Statement statement = opened.createStatement()) {
+                    for (String sql : SCHEMA) {
+                        statement.execute(sql);
+                    }
+                }
+                opened.commit();
+                if (isEmpty(opened)) {
+                    importDataFiles(opened);
+                }
+            } catch (SQLException e) {
+                opened.close();
+                throw e;
+            }
+            connection = opened;
+            System.out.println("Opened payroll database " + url);
+        }
+        return connection;
+    }
+
+    // A database holding only time logs is not empty, or every open would import them again
+    private static boolean isEmpty(Connection connection) throws SQLException {
+        return !hasRows(connection, "employees") && !hasRows(connection, "time_logs");
+    }
+
+    private static boolean hasRows(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+            return results.next();
+        }
+    }
+
+    // Copies the employee and attendance files into an empty database in one transaction
+    private static void importDataFiles(Connection connection) throws SQLException {
+        DataRepository files = DataRepository.getInstance();
+        List<Employee> fileEmployees = files.getEmployees();
+        List<TimeLog> fileTimeLogs = files.getTimeLogs(LoadProgressListener.NONE);
+        try {
+            insertBatch(connection, fileEmployees, fileTimeLogs);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        System.out.println("Imported " + fileEmployees.size() + " employees and "
+                + fileTimeLogs.size() + " time logs into the payroll database");
+    }
+
+    // Batched inserts without a commit
+    private static void insertBatch(Connection connection, List<Employee> employees, List<TimeLog> timeLogs)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPLOYEE)) {
+            for (Employee employee : employees) {
+                bindEmployee(insert, employee);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_TIME_LOG)) {
+            int pending = 0;
+            for (TimeLog timeLog : timeLogs) {
+                bindTimeLog(insert, timeLog);
+                insert.addBatch();
+                if (++pending == IMPORT_BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    // Caller holds this. Returns false if the employees could not be loaded; the next
+    // call tries again.
+    private boolean ensureEmployeesLoaded() {
+        if (employees == null) {
+            employees = loadEmployees();
+        }
+        return employees != null;
+    }
+
+    // Caller holds this. Returns null if the query fails, so no half-read list is cached.
+    private Map<String, Employee> loadEmployees() {
+        Map<String, Employee> loaded = new LinkedHashMap<>();
+        try (Statement statement = connection().createStatement();
+             ResultSet results = statement.executeQuery("SELECT " + EMPLOYEE_COLUMNS + " FROM employees ORDER BY id")) {
+            while (results.next()) {
+                Employee employee = readEmployee(results);
+                loaded.put(employee.getEmployeeNumber(), employee);
+            }
+            connection.commit();
+            return loaded;
+        } catch (SQLException e) {
+            rollback(e, "Error loading employee data");
+            return null;
+        }
+    }
+
+    // Caller holds this
+    private TimeLogStore loadTimeLogs(LoadProgressListener progressListener) {
+        TimeLogStore loaded = null;
+        try (Statement statement = connection().createStatement()) {
+            long total;
+            try (ResultSet results = statement.executeQuery("SELECT COUNT(*) FROM time_logs")) {
+                results.next();
+                total = results.getLong(1);
+            }
+            loaded = TimeLogStore.create((int) Math.min(total, Integer.MAX_VALUE));
+            try (ResultSet results = statement.executeQuery(
+                    "SELECT employee_number, log_date, time_in, time_out FROM time_logs ORDER BY id")) {
+                while (results.next()) {
+                    loaded.add(readTimeLog(results));
+                    if (loaded.size() % IMPORT_BATCH_SIZE == 0) {
+                        progressListener.onProgress(loaded.size(), total);
+                    }
+                }
+            }
+            connection.commit();
+            progressListener.onProgress(total, total);
+        } catch (SQLException e) {
+            rollback(e, "Error loading time log data");
+        }
+        return loaded != null ? loaded : TimeLogStore.create(0);
+    }
+
+    // Caller holds this
+    private void rollback(SQLException e, String message) {
+        System.err.println(message + ": " + e.getMessage());
+        e.printStackTrace();
+        if (connection != null) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                System.err.println("Error rolling back: " + rollbackError.getMessage());
+            }
+        }
+    }
+
+    private static void bindEmployee(PreparedStatement statement, Employee employee) throws SQLException {
+        statement.setString(1, employee.getEmployeeNumber());
+        bindEmployeeValues(statement, employee, 2);
+    }
+
+    // Binds every column after employee_number, starting at the given parameter
+    private static void bindEmployeeValues(PreparedStatement statement, Employee employee, int first) throws SQLException {
+        int i = first;
+        statement.setString(i++, employee.getLastName());
+        statement.setString(i++, employee.getFirstName());
+        statement.setString(i++, employee.getBirthDate());
+        statement.setString(i++, employee.getAddress());
+        statement.setString(i++, employee.getPhoneNumber());
+        statement.setString(i++, employee.getSssNumber());
+        statement.setString(i++, employee.getPhilhealthNumber());
+        statement.setString(i++, employee.getTinNumber());
+        statement.setString(i++, employee.getPagIbigNumber());
+        statement.setString(i++, employee.getStatus());
+        statement.setString(i++, employee.getPosition());
+        statement.setString(i++, employee.getImmediateSupervisor());
+        statement.setDouble(i++, employee.getBasicSalary());
+        statement.setDouble(i++, employee.getRiceSubsidy());
+        statement.setDouble(i++, employee.getPhoneAllowance());
+        statement.setDouble(i++, employee.getClothingAllowance());
+        statement.setDouble(i++, Employee.semiMonthlyRateOf(employee.getBasicSalary()));
+        statement.setDouble(i, Employee.hourlyRateOf(employee.getBasicSalary()));
+    }
+
+    // The stored rates are ignored, like the file's: they always follow the basic salary
+    private static Employee readEmployee(ResultSet results) throws SQLException {
+        double basicSalary = results.getDouble(14);
+        return new Employee(
+                results.getString(1), results.getString(2), results.getString(3), results.getString(4),
+                results.getString(5), results.getString(6), results.getString(7), results.getString(8),
+                results.getString(9), results.getString(10), results.getString(11), results.getString(12),
+                results.getString(13), basicSalary, results.getDouble(15),
+                results.getDouble(16), results.getDouble(17),
+                Employee.semiMonthlyRateOf(basicSalary), Employee.hourlyRateOf(basicSalary));
+    }
+
+    private static void bindTimeLog(PreparedStatement statement, TimeLog timeLog) throws SQLException {
+        statement.setString(1, timeLog.getEmployeeNumber());
+        statement.setObject(2, timeLog.getDate());
+        statement.setObject(3, timeLog.getTimeIn());
+        statement.setObject(4, timeLog.getTimeOut());
+    }
+
+    private static TimeLog readTimeLog(ResultSet results) throws SQLException {
+        return new TimeLog(results.getString(1), results.getObject(2, LocalDate.class),
+                results.getObject(3, LocalTime.class), results.getObject(4, LocalTime.class));
+    }
+}
@@ -0,0 +1,161 @@
+package DataManager;
+
+import Core.Employee;
+import Core.PayrollConfig;
+import Core.TimeLog;
+import Core.TimeLogStore;
+import FileReaders.LoadProgressListener;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Where employees and time logs are stored. The backend is chosen with
+ * -Dpayroll.storage.backend=tsv|jdbc (see {@link PayrollConfig}):
+ *
+ * - tsv (default): the employee TSV and attendance CSV files ({@link DataRepository})
+ * - jdbc: an embedded H2 database file ({@link JdbcPayrollRepository})
+ *
+ * Every mutation changes {@link #getVersion()}, so callers can tell whether data they
+ * derived from the repository is still current. Implementations are shared by the
+ * whole process and must be thread safe, committing one change at a time.
+ */
+public interface PayrollRepository {
+
+    /**
+     * @return The repository selected by the configuration (one shared instance per backend)
+     */
+    static PayrollRepository getConfigured() {
+        if (PayrollConfig.getStorageBackend() == PayrollConfig.StorageBackend.JDBC) {
+            return JdbcPayrollRepository.getInstance();
+        }
+        return DataRepository.getInstance();
+    }
+
+    /**
+     * @return A number that changes every time the stored data changes
+     */
+    long getVersion();
+
+    /**
+     * @return All employees in the order they were added
+     */
+    List<Employee> getEmployees();
+
+    /**
+     * Drops the cached employees and reads them from storage again
+     * @return All employees in the order they were added
+     */
+    List<Employee> reloadEmployees();
+
+    /**
+     * @param employeeNumber The employee number to look up
+     * @return The employee, or null if there is none
+     */
+    Employee getEmployee(String employeeNumber);
+
+    /**
+     * @param employee The employee to add
+     * @return false if the employee number is already taken or the change cannot be stored
+     */
+    boolean addEmployee(Employee employee);
+
+    /**
+     * Replaces an employee, or adds them if the number is not known yet
+     * @param employee The new values for the employee
+     * @return true if the change was stored
+     */
+    boolean updateEmployee(Employee employee);
+
+    /**
+     * Removes an employee together with their time logs
+     * @param employeeNumber The employee to remove
+     * @return false if the employee does not exist or the change cannot be stored
+     */
+    boolean deleteEmployee(String employeeNumber);
+
+    /**
+     * Adds many employees and time logs in one commit (see BulkImporter): either the whole
+     * batch is stored or none of it is. The caller has already validated and deduplicated
+     * the batch.
+     * @param employees Employees to add; none of them may exist yet
+     * @param timeLogs Time logs to add
+     * @return false if the batch could not be stored (nothing was)
+     */
+    boolean importBatch(List<Employee> employees, List<TimeLog> timeLogs);
+
+    /**
+     * Returns the full time log history, loading it on first use. The list is shared, so
+     * change it only through this repository.
+     * @param progressListener Told how far the load has got (only used if a load happens)
+     * @return The time logs
+     */
+    TimeLogStore getTimeLogs(LoadProgressListener progressListener);
+
+    /**
+     * Drops the cached history and loads it again
+     * @param progressListener Told how far the load has got
+     * @return The newly loaded time logs
+     */
+    TimeLogStore reloadTimeLogs(LoadProgressListener progressListener);
+
+    /**
+     * Streams the time logs dated within a range without loading the whole history.
+     * Close the stream when done.
+     * @param startDate The first date (inclusive)
+     * @param endDate The last date (inclusive)
+     * @return The matching time logs
+     */
+    Stream<TimeLog> streamTimeLogs(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Records punches. Whether they are durable when this returns depends on the backend
+     * (see {@link #syncTimeLogs()}).
+     * @param timeLogs The punches to record
+     * @return true if they were stored
+     */
+    boolean appendTimeLogs(List<TimeLog> timeLogs);
+
+    /**
+     * Records one punch
+     * @param timeLog The punch
+     * @param lastName The employee's last name (kept by backends that store it with the punch)
+     * @param firstName The employee's first name
+     * @return true if it was stored
+     */
+    default boolean appendTimeLog(TimeLog timeLog, String lastName, String firstName) {
+        return appendTimeLogs(List.of(timeLog));
+    }
+
+    /**
+     * Makes recorded punches durable
+     * @return true if everything recorded so far is durable
+     */
+    boolean syncTimeLogs();
+
+    // File backends only: location of the employee file (null if not on disk)
+    default Path getEmployeeFilePath() {
+        return null;
+    }
+
+    // File backends only: location of the attendance file (null if not on disk)
+    default Path getTimeLogFilePath() {
+        return null;
+    }
+
+    // File backends only: apply employee changes another process made to the file
+    default void applyEmployeeChanges(List<Employee> added, List<Employee> updated, List<String> removed) {
+    }
+
+    // File backends only: apply time logs another process appended to the file
+    default void applyAppendedTimeLogs(List<TimeLog> appended) {
+    }
+
+    // File backends only: move closed months out of the attendance file into archives
+    default boolean archiveClosedPeriods(YearMonth before) {
+        return false;
+    }
+}
@@ -0,0 +1,249 @@
+package DataManager;
+
+import Core.PayrollConfig;
+import Core.TimeLog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Absorbs clock-in bursts. Callers hand punches to a bounded ring buffer and return
+ * immediately; a single writer thread drains it and persists each batch with one write
+ * and one fsync (group commit), so hundreds of punches arriving together cost a handful
+ * of disk syncs instead of one each.
+ *
+ * Tuning (system properties, see {@link PayrollConfig}):
+ * payroll.punch.queueCapacity, payroll.punch.batchSize and payroll.punch.flushIntervalMillis
+ * (how long the writer waits for a batch to fill up after the first punch arrives).
+ */
+public class PunchIngestionQueue implements AutoCloseable {
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final PayrollRepository repository;
+    private final BlockingQueue<TimeLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Punches taken off the queue and written (or given up on); guarded by this
+    private long processed;
+    // Punches that failed and no flush has reported yet, as ranges {first, last} of their
+    // position in the order they were processed; guarded by this
+    private final Deque<long[]> unreportedFailures = new ArrayDeque<>();
+
+    private Thread writer;
+    // Set under submitLock, so no punch is queued after close() has returned
+    private final Object submitLock = new Object();
+    private volatile boolean closed;
+    private volatile DataChangeListener listener;
+
+    public PunchIngestionQueue() {
+        this(PayrollRepository.getConfigured(),
+                PayrollConfig.getPunchQueueCapacity(),
+                PayrollConfig.getPunchBatchSize(),
+                PayrollConfig.getPunchFlushIntervalMillis());
+    }
+
+    /**
+     * @param repository Where batches are written
+     * @param capacity Most punches that can wait to be written
+     * @param batchSize Most punches written with one write and fsync
+     * @param flushIntervalMillis How long to wait for a batch to fill (0 to write what is there)
+     */
+    public PunchIngestionQueue(PayrollRepository repository, int capacity, int batchSize, long flushIntervalMillis) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Starts the writer thread. Punches still queued when the JVM exits are written first.
+     */
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::writeLoop, "punch-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "punch-writer-shutdown"));
+    }
+
+    /**
+     * Sets who is told about each batch once it is written (on the writer thread)
+     * @param listener Receives timeLogsAppended for every written batch, or null for none
+     */
+    public void setListener(DataChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a punch without blocking
+     * @param timeLog The punch
+     * @return false if the queue is full or closed; the punch was not recorded
+     */
+    public boolean submit(TimeLog timeLog) {
+        // The queue takes a lock for the offer anyway, so this costs little
+        synchronized (submitLock) {
+            if (closed || !queue.offer(timeLog)) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            submitted.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Waits until every punch submitted before this call has been written. A failed punch
+     * is reported by the first flush that covers it, so one failure does not make every
+     * later flush fail.
+     * @param timeoutMillis How long to wait at most
+     * @return true if they were all written in time and none failed since the last flush
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long target = submitted.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (processed < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+
+            boolean written = true;
+            while (!unreportedFailures.isEmpty() && unreportedFailures.peekFirst()[0] <= target) {
+                long[] failure = unreportedFailures.peekFirst();
+                written = false;
+                if (failure[1] > target) {
+                    // The rest of the range belongs to later flushes
+                    failure[0] = target + 1;
+                    break;
+                }
+                unreportedFailures.pollFirst();
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Stops taking punches, writes the ones still queued and stops the writer
+     */
+    @Override
+    public void close() {
+        synchronized (submitLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        Thread thread;
+        synchronized (this) {
+            thread = writer;
+        }
+        if (thread != null) {
+            try {
+                thread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void writeLoop() {
+        List<TimeLog> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                if (closed) {
+                    // Write out whatever is left, then stop
+                    queue.drainTo(batch, batchSize);
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                } else {
+                    // Poll rather than block so close() is noticed. The writer is never
+                    // interrupted, since that would close the attendance file channel.
+                    TimeLog punch = queue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                    if (punch == null) {
+                        continue;
+                    }
+                    batch.add(punch);
+                    fillBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // Gathers more punches until the batch is full or the flush interval has passed
+    private void fillBatch(List<TimeLog> batch) throws InterruptedException {
+        queue.drainTo(batch, batchSize - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            TimeLog punch = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (punch == null) {
+                return;
+            }
+            batch.add(punch);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    // One write and one fsync for the whole batch
+    private void writeBatch(List<TimeLog> batch) {
+        List<TimeLog> written = new ArrayList<>(batch);
+        boolean ok = repository.appendTimeLogs(written) && repository.syncTimeLogs();
+        if (!ok) {
+            failed.addAndGet(batch.size());
+            System.err.println("Failed to record " + batch.size() + " punches");
+        } else if (listener != null) {
+            listener.timeLogsAppended(written);
+        }
+
+        synchronized (this) {
+            if (!ok) {
+                long[] last = unreportedFailures.peekLast();
+                if (last != null && last[1] == processed) {
+                    // Failures in a row (e.g. a full disk) stay one range
+                    last[1] += batch.size();
+                } else {
+                    unreportedFailures.addLast(new long[]{processed + 1, processed + batch.size()});
+                }
+            }
+            processed += batch.size();
+            notifyAll();
+        }
+    }
+}
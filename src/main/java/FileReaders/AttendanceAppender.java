@@ -0,0 +1,264 @@
+package FileReaders;
+
+import Core.PayrollConfig;
+import Core.TimeLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends rows to the attendance file through a channel opened in APPEND mode, so adding
+ * a punch costs the same no matter how long the history is. Existing rows are never read.
+ *
+ * When rows reach the disk depends on the {@link PayrollConfig.FsyncPolicy}:
+ * ALWAYS forces every append before it returns, INTERVAL forces in the background at a
+ * fixed interval, and BATCH leaves it to the caller to {@link #sync()} after each batch.
+ * Closing the appender always forces what was written. INTERVAL appenders share one
+ * daemon thread for the whole process, so reopening an appender starts no new thread.
+ */
+public final class AttendanceAppender implements AutoCloseable {
+    public static final String HEADER = "Employee #,Last Name,First Name,Date,Log In,Log Out";
+
+    private final Path file;
+    private final FileChannel channel;
+    private final PayrollConfig.FsyncPolicy fsyncPolicy;
+    // The INTERVAL policy's periodic force, null for the other policies
+    private final ScheduledFuture<?> periodicSync;
+
+    // True when rows were written since the last force
+    private boolean dirty;
+    // What prepareFile wrote, [start, end), or null if it wrote nothing
+    private final long[] preparedRange;
+
+    /**
+     * Opens the attendance file for appending with the configured fsync policy
+     * @param file The attendance file (created with a header if it does not exist)
+     * @throws IOException If the file cannot be opened
+     */
+    public AttendanceAppender(Path file) throws IOException {
+        this(file, PayrollConfig.getAttendanceFsyncPolicy(), PayrollConfig.getAttendanceFsyncIntervalMillis());
+    }
+
+    /**
+     * @param file The attendance file (created with a header if it does not exist)
+     * @param fsyncPolicy When appended rows are forced to disk
+     * @param fsyncIntervalMillis How often INTERVAL forces (ignored by the other policies)
+     * @throws IOException If the file cannot be opened
+     */
+    public AttendanceAppender(Path file, PayrollConfig.FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        this.file = file;
+        this.fsyncPolicy = fsyncPolicy;
+
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        long sizeBefore = channel.size();
+        int prepared = prepareFile(sizeBefore);
+        preparedRange = prepared > 0 ? new long[]{sizeBefore, sizeBefore + prepared} : null;
+
+        if (fsyncPolicy == PayrollConfig.FsyncPolicy.INTERVAL) {
+            periodicSync = Flusher.EXECUTOR.scheduleWithFixedDelay(this::syncQuietly,
+                    fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            periodicSync = null;
+        }
+    }
+
+    // Writes the header into a new file, and ends a last row that lacks a line break.
+    // Returns the number of bytes written.
+    private int prepareFile(long size) throws IOException {
+        if (size == 0) {
+            return write(HEADER + "\n");
+        }
+
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            reader.read(last, size - 1);
+        }
+        if (last.get(0) != '\n') {
+            return write("\n");
+        }
+        return 0;
+    }
+
+    /**
+     * The bytes opening the appender wrote: the header of a new file, or the line break
+     * that ends a last row written without one
+     * @return The file offsets [start, end), or null if it wrote nothing
+     */
+    public long[] getPreparedRange() {
+        return preparedRange;
+    }
+
+    /**
+     * Appends one row
+     * @param row A formatted row without line terminator (see {@link #formatRow})
+     * @return The file offsets [start, end) the row was written to
+     * @throws IOException If the row cannot be written
+     */
+    public synchronized long[] append(String row) throws IOException {
+        return appendAll(List.of(row));
+    }
+
+    /**
+     * Appends several rows with a single write
+     * @param rows Formatted rows without line terminators
+     * @return The file offsets [start, end) the rows were written to
+     * @throws IOException If the rows cannot be written
+     */
+    public synchronized long[] appendAll(List<String> rows) throws IOException {
+        StringBuilder text = new StringBuilder(rows.size() * 48);
+        for (String row : rows) {
+            text.append(row).append('\n');
+        }
+
+        int length = write(text.toString());
+        long end = channel.position();
+        long start = end - length;
+
+        if (fsyncPolicy == PayrollConfig.FsyncPolicy.ALWAYS) {
+            channel.force(false);
+            dirty = false;
+        }
+        return new long[]{start, end};
+    }
+
+    /**
+     * Forces everything appended so far to disk
+     * @throws IOException If the data cannot be forced
+     */
+    public synchronized void sync() throws IOException {
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    /**
+     * @return The current length of the file
+     * @throws IOException If the size cannot be read
+     */
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Cuts the file back to an earlier length and forces it, undoing appends that must not
+     * be kept (see DataRepository.importBatch)
+     * @param size The length to cut the file to
+     * @throws IOException If the file cannot be truncated
+     */
+    public synchronized void truncate(long size) throws IOException {
+        channel.truncate(size);
+        channel.force(false);
+        dirty = false;
+    }
+
+    public PayrollConfig.FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (periodicSync != null) {
+            periodicSync.cancel(false);
+        }
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    // Returns the number of bytes written
+    private int write(String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirty = true;
+        return buffer.capacity();
+    }
+
+    private synchronized void syncQuietly() {
+        try {
+            if (channel.isOpen()) {
+                sync();
+            }
+        } catch (IOException e) {
+            System.err.println("Error syncing attendance file: " + e.getMessage());
+        }
+    }
+
+    // Created on first use, so only INTERVAL appenders start the thread
+    private static final class Flusher {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "attendance-fsync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Formats a time log as an attendance row ("Employee #,Last Name,First Name,Date,Log In,Log Out")
+     * @param timeLog The time log
+     * @param lastName The employee's last name
+     * @param firstName The employee's first name
+     * @return The row without line terminator
+     */
+    public static String formatRow(TimeLog timeLog, String lastName, String firstName) {
+        StringBuilder row = new StringBuilder(48);
+        row.append(timeLog.getEmployeeNumber()).append(',')
+                .append(field(lastName)).append(',')
+                .append(field(firstName)).append(',');
+
+        // MM/dd/yyyy
+        LocalDate date = timeLog.getDate();
+        if (date != null) {
+            appendTwoDigits(row, date.getMonthValue()).append('/');
+            appendTwoDigits(row, date.getDayOfMonth()).append('/');
+            row.append(date.getYear());
+        }
+        row.append(',');
+        appendTime(row, timeLog.getTimeIn());
+        row.append(',');
+        appendTime(row, timeLog.getTimeOut());
+        return row.toString();
+    }
+
+    // H:mm, or nothing when the time is missing
+    private static void appendTime(StringBuilder row, LocalTime time) {
+        if (time != null) {
+            row.append(time.getHour()).append(':');
+            appendTwoDigits(row, time.getMinute());
+        }
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder row, int value) {
+        if (value < 10) {
+            row.append('0');
+        }
+        return row.append(value);
+    }
+
+    // Commas and line breaks would shift the columns, so drop them from names
+    private static String field(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace(",", " ").replace('\r', ' ').replace('\n', ' ');
+    }
+}
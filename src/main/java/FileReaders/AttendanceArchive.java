@@ -0,0 +1,260 @@
+package FileReaders;
+
+import Core.TimeLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Compact archive of closed attendance periods. A CSV row repeats the employee number and
+ * names and spells out the date and times (about 45 bytes); an archived row is usually
+ * 4 bytes, and decoding it is a few shifts instead of text parsing.
+ *
+ * Layout (big-endian header, then unsigned LEB128 varints):
+ * <pre>
+ *   int    magic ("PAYA")
+ *   int    format version
+ *   int    number of distinct employee numbers, then each as (short length, UTF-8 bytes)
+ *   int    number of rows
+ *   rows:  varint zigzag(epoch day - previous row's epoch day)
+ *          varint employee id (index into the employee numbers above) shifted left by
+ *                 two, with bit 1 set if there is a time in and bit 0 if there is a time out
+ *          varint zigzag(minute of day of time in - previous time in), if present
+ *          varint zigzag(minutes worked - previous minutes worked), if both are present,
+ *                 else varint minute of day of time out, if present
+ *   long   CRC32 of everything before it
+ * </pre>
+ * Rows are mostly grouped by date and people keep similar hours, so the deltas are small
+ * and nearly every field fits in one byte.
+ * Names are not kept; they belong to the employee records.
+ */
+public class AttendanceArchive {
+    private static final int MAGIC = 0x50415941;
+    private static final int VERSION = 1;
+
+    /**
+     * Reads every row of an archive
+     * @param file The archive file
+     * @return The time logs in archive order
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    public static List<TimeLog> read(Path file) throws IOException {
+        List<TimeLog> timeLogs = new ArrayList<>();
+        read(file, timeLogs::add);
+        return timeLogs;
+    }
+
+    /**
+     * Decodes an archive row by row
+     * @param file The archive file
+     * @param handler Receives each time log in archive order
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    public static void read(Path file, Consumer<TimeLog> handler) throws IOException {
+        RowDecoder decoder = new RowDecoder(file);
+        while (decoder.hasNext()) {
+            handler.accept(decoder.next());
+        }
+    }
+
+    /**
+     * Returns a lazy stream over an archive. The header and checksum are checked up front;
+     * each row is decoded only when the stream pulls it.
+     * @param file The archive file
+     * @return The time logs in archive order
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    public static Stream<TimeLog> stream(Path file) throws IOException {
+        RowDecoder decoder = new RowDecoder(file);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<TimeLog>(decoder.remaining,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super TimeLog> action) {
+                if (!decoder.hasNext()) {
+                    return false;
+                }
+                action.accept(decoder.next());
+                return true;
+            }
+        }, false);
+    }
+
+    /**
+     * Writes an archive of the given time logs, replacing any previous one atomically
+     * @param file The archive file
+     * @param timeLogs The time logs, kept in this order
+     * @throws IOException If the archive cannot be written
+     */
+    public static void write(Path file, List<TimeLog> timeLogs) throws IOException {
+        Map<String, Integer> employeeIds = new HashMap<>();
+        List<byte[]> employeeNumbers = new ArrayList<>();
+        ByteArrayOutputStream rows = new ByteArrayOutputStream(timeLogs.size() * 6);
+        long previousDay = 0;
+        int previousIn = 0;
+        int previousWorked = 0;
+        for (TimeLog log : timeLogs) {
+            long epochDay = log.getDate().toEpochDay();
+            writeVarint(rows, zigzag(epochDay - previousDay));
+            previousDay = epochDay;
+
+            Integer id = employeeIds.get(log.getEmployeeNumber());
+            if (id == null) {
+                id = employeeNumbers.size();
+                employeeIds.put(log.getEmployeeNumber(), id);
+                employeeNumbers.add(log.getEmployeeNumber().getBytes(StandardCharsets.UTF_8));
+            }
+            boolean hasIn = log.getTimeIn() != null;
+            boolean hasOut = log.getTimeOut() != null;
+            writeVarint(rows, (long) id << 2 | (hasIn ? 2 : 0) | (hasOut ? 1 : 0));
+
+            if (hasIn) {
+                int minuteIn = minuteOf(log.getTimeIn());
+                writeVarint(rows, zigzag(minuteIn - previousIn));
+                previousIn = minuteIn;
+            }
+            if (hasIn && hasOut) {
+                // Overnight shifts wrap, and come back out the same way
+                int worked = minuteOf(log.getTimeOut()) - previousIn;
+                writeVarint(rows, zigzag(worked - previousWorked));
+                previousWorked = worked;
+            } else if (hasOut) {
+                writeVarint(rows, minuteOf(log.getTimeOut()));
+            }
+        }
+
+        int dictionaryBytes = 0;
+        for (byte[] bytes : employeeNumbers) {
+            dictionaryBytes += Short.BYTES + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(3 * Integer.BYTES + dictionaryBytes + Integer.BYTES + rows.size() + Long.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(employeeNumbers.size());
+        for (byte[] bytes : employeeNumbers) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.putInt(timeLogs.size());
+        buffer.put(rows.toByteArray());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, "attendance", ".tmp");
+        Files.write(tempFile, buffer.array());
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // Decodes the rows of one archive in order, keeping the running deltas
+    private static final class RowDecoder {
+        private final ByteBuffer buffer;
+        private final String[] employeeNumbers;
+        private int remaining;
+        private long epochDay;
+        private int minuteIn;
+        private int minutesWorked;
+        private LocalDate date;
+
+        RowDecoder(Path file) throws IOException {
+            buffer = AttendanceFileParser.map(file);
+            if (buffer.remaining() < 24 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not an attendance archive: " + file);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(buffer.limit() - Long.BYTES));
+            if (crc.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) {
+                throw new IOException("Attendance archive is damaged: " + file);
+            }
+
+            employeeNumbers = new String[buffer.getInt()];
+            for (int i = 0; i < employeeNumbers.length; i++) {
+                byte[] bytes = new byte[buffer.getShort()];
+                buffer.get(bytes);
+                employeeNumbers[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            remaining = buffer.getInt();
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        TimeLog next() {
+            remaining--;
+            epochDay += unzigzag(readVarint(buffer));
+            if (date == null || date.toEpochDay() != epochDay) {
+                date = LocalDate.ofEpochDay(epochDay);
+            }
+
+            long employee = readVarint(buffer);
+            String employeeNumber = employeeNumbers[(int) (employee >>> 2)];
+            boolean hasIn = (employee & 2) != 0;
+            boolean hasOut = (employee & 1) != 0;
+
+            LocalTime timeIn = null;
+            LocalTime timeOut = null;
+            if (hasIn) {
+                minuteIn += (int) unzigzag(readVarint(buffer));
+                timeIn = DateTimeDecoder.timeOf(minuteIn);
+            }
+            if (hasIn && hasOut) {
+                minutesWorked += (int) unzigzag(readVarint(buffer));
+                timeOut = DateTimeDecoder.timeOf(Math.floorMod(minuteIn + minutesWorked, DateTimeDecoder.MINUTES_PER_DAY));
+            } else if (hasOut) {
+                timeOut = DateTimeDecoder.timeOf((int) readVarint(buffer));
+            }
+            return new TimeLog(employeeNumber, date, timeIn, timeOut);
+        }
+    }
+}
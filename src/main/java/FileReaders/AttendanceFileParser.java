@@ -0,0 +1,335 @@
+package FileReaders;
+
+import Core.TimeLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses attendance records ("Employee #,Last Name,First Name,Date,Log In,Log Out")
+ * straight from the bytes of the file. The file is memory-mapped when it lives on disk,
+ * and fields are decoded in place, so no line or per-field Strings are created for
+ * well-formed rows.
+ *
+ * A parser instance keeps small scratch state and is not thread-safe; use one per thread.
+ */
+public class AttendanceFileParser {
+    private static final int FIELD_COUNT = 6;
+    private static final int EMPLOYEE_FIELD = 0;
+    private static final int DATE_FIELD = 3;
+    private static final int TIME_IN_FIELD = 4;
+    private static final int TIME_OUT_FIELD = 5;
+
+    // Report progress roughly once per this many bytes
+    private static final int PROGRESS_INTERVAL = 1 << 20;
+
+    // Start/end offsets of the fields in the row being parsed
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+
+    private LoadProgressListener progressListener = LoadProgressListener.NONE;
+
+    // Cached date and time decoding
+    private final DateTimeDecoder decoder = new DateTimeDecoder();
+
+    // Open-addressing cache of numeric employee numbers to their String form
+    private int[] employeeKeys = new int[64];
+    private String[] employeeNumbers = new String[64];
+    private int cachedEmployees;
+
+    /**
+     * Opens a data file for parsing. Files in the data directory are mapped with
+     * {@link FileChannel#map}; classpath copies inside a jar are read into a heap buffer.
+     * @param resourceName The file name (no leading slash)
+     * @return A buffer over the whole file, or null if the file does not exist
+     * @throws IOException If the file cannot be read
+     */
+    public static ByteBuffer openResource(String resourceName) throws IOException {
+        Path path = ResourceLocator.dataFile(resourceName);
+        if (path != null && Files.isRegularFile(path)) {
+            return map(path);
+        }
+
+        URL url = AttendanceFileParser.class.getClassLoader().getResource(resourceName);
+        if (url == null) {
+            return null;
+        }
+        try (InputStream is = url.openStream()) {
+            return ByteBuffer.wrap(is.readAllBytes());
+        }
+    }
+
+    /**
+     * Maps a file read-only into memory
+     * @param path The file to map
+     * @return A buffer over the whole file
+     * @throws IOException If the file cannot be mapped
+     */
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Attendance file is too large to map: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Finds where the data rows start, i.e. the offset just past the header line
+     * @param buffer The attendance file contents
+     * @return The offset of the first data row
+     */
+    public static int dataStart(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Parses every data row of the file into a list
+     * @param buffer The attendance file contents, including the header line
+     * @return The parsed time logs in file order
+     */
+    public List<TimeLog> parse(ByteBuffer buffer) {
+        List<TimeLog> timeLogs = new ArrayList<>();
+        parse(buffer, dataStart(buffer), buffer.limit(), timeLogs::add);
+        return timeLogs;
+    }
+
+    /**
+     * Parses the rows in [start, end) and hands each time log to the handler.
+     * The range must start at the beginning of a row.
+     * @param buffer The attendance file contents
+     * @param start Offset of the first byte to parse
+     * @param end Offset just past the last byte to parse
+     * @param handler Receives each parsed time log in file order
+     */
+    public void parse(ByteBuffer buffer, int start, int end, Consumer<TimeLog> handler) {
+        int rowStart = start;
+        int nextProgress = start + PROGRESS_INTERVAL;
+        while (rowStart < end) {
+            int rowEnd = rowEnd(buffer, rowStart, end);
+
+            TimeLog timeLog = parseRow(buffer, rowStart, rowEnd);
+            if (timeLog != null) {
+                handler.accept(timeLog);
+            }
+
+            rowStart = rowEnd + 1;
+            if (rowStart >= nextProgress) {
+                progressListener.onProgress(rowStart, buffer.limit());
+                nextProgress = rowStart + PROGRESS_INTERVAL;
+            }
+        }
+        progressListener.onProgress(Math.min(end, buffer.limit()), buffer.limit());
+    }
+
+    /**
+     * Parses one data row given as text (e.g. a line of an import batch)
+     * @param line The row without its line terminator
+     * @return The time log, or null if the row is blank or invalid (the problem is reported)
+     */
+    public TimeLog parseLine(String line) {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        return parseRow(buffer, 0, buffer.limit());
+    }
+
+    /**
+     * Sets who is told about parse progress (offsets are relative to the whole buffer)
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(LoadProgressListener progressListener) {
+        this.progressListener = progressListener != null ? progressListener : LoadProgressListener.NONE;
+    }
+
+    /**
+     * Returns a lazy stream over the data rows of the file. Each row is parsed only when
+     * the stream pulls it, so consumers that filter or aggregate never hold the whole
+     * history in memory. The stream is sequential and uses this parser's scratch state.
+     * @param buffer The attendance file contents, including the header line
+     * @return The time logs in file order
+     */
+    public Stream<TimeLog> stream(ByteBuffer buffer) {
+        return stream(buffer, dataStart(buffer), buffer.limit());
+    }
+
+    /**
+     * Lazy stream over the rows in [start, end), like {@link #stream(ByteBuffer)}. The
+     * range must start at the beginning of a row.
+     * @param buffer The attendance file contents
+     * @param start Offset of the first byte to parse
+     * @param end Offset just past the last byte to parse
+     * @return The time logs in file order
+     */
+    public Stream<TimeLog> stream(ByteBuffer buffer, int start, int end) {
+        return StreamSupport.stream(new RowSpliterator(buffer, start, end), false);
+    }
+
+    private static int rowEnd(ByteBuffer buffer, int rowStart, int end) {
+        int rowEnd = rowStart;
+        while (rowEnd < end && buffer.get(rowEnd) != '\n') {
+            rowEnd++;
+        }
+        return rowEnd;
+    }
+
+    /**
+     * Parses a single row (without its line terminator)
+     * @return The time log, or null if the row is blank or invalid
+     */
+    TimeLog parseRow(ByteBuffer buffer, int start, int end) {
+        // Tolerate Windows line endings
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end <= start) {
+            return null;
+        }
+
+        // Locate the first six fields
+        int fields = 0;
+        fieldStart[0] = start;
+        for (int i = start; i < end && fields < FIELD_COUNT; i++) {
+            if (buffer.get(i) == ',') {
+                fieldEnd[fields++] = i;
+                if (fields < FIELD_COUNT) {
+                    fieldStart[fields] = i + 1;
+                }
+            }
+        }
+        if (fields < FIELD_COUNT) {
+            fieldEnd[fields++] = end;
+        }
+
+        if (fields < FIELD_COUNT) {
+            System.err.println("Invalid time log format (not enough fields): " + text(buffer, start, end));
+            return null;
+        }
+
+        try {
+            String employeeNumber = employeeNumber(buffer, fieldStart[EMPLOYEE_FIELD], fieldEnd[EMPLOYEE_FIELD]);
+            LocalDate date = decoder.decodeDate(buffer, fieldStart[DATE_FIELD], fieldEnd[DATE_FIELD]);
+            LocalTime timeIn = parseTime(buffer, fieldStart[TIME_IN_FIELD], fieldEnd[TIME_IN_FIELD], start, end);
+            LocalTime timeOut = parseTime(buffer, fieldStart[TIME_OUT_FIELD], fieldEnd[TIME_OUT_FIELD], start, end);
+
+            return new TimeLog(employeeNumber, date, timeIn, timeOut);
+        } catch (DateTimeException e) {
+            System.err.println("Error parsing time log: " + text(buffer, start, end) + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    // A bad time is reported and treated as missing, like a blank one
+    private LocalTime parseTime(ByteBuffer buffer, int start, int end, int rowStart, int rowEnd) {
+        try {
+            return decoder.decodeTime(buffer, start, end);
+        } catch (DateTimeException e) {
+            System.err.println("Error parsing time log line: " + text(buffer, rowStart, rowEnd)
+                    + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Returns a shared String for numeric employee numbers so rows do not allocate one each
+    private String employeeNumber(ByteBuffer buffer, int start, int end) {
+        int key = DateTimeDecoder.parseDigits(buffer, start, end);
+        if (key < 0) {
+            return text(buffer, start, end);
+        }
+
+        int mask = employeeKeys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 1 & mask;
+        while (employeeNumbers[slot] != null) {
+            if (employeeKeys[slot] == key && employeeNumbers[slot].length() == end - start) {
+                return employeeNumbers[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String employeeNumber = text(buffer, start, end);
+        employeeKeys[slot] = key;
+        employeeNumbers[slot] = employeeNumber;
+        if (++cachedEmployees * 2 > employeeKeys.length) {
+            growEmployeeCache();
+        }
+        return employeeNumber;
+    }
+
+    private void growEmployeeCache() {
+        int[] oldKeys = employeeKeys;
+        String[] oldNumbers = employeeNumbers;
+        employeeKeys = new int[oldKeys.length * 2];
+        employeeNumbers = new String[oldNumbers.length * 2];
+
+        int mask = employeeKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNumbers[i] != null) {
+                int slot = (oldKeys[i] * 0x9E3779B9) >>> 1 & mask;
+                while (employeeNumbers[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                employeeKeys[slot] = oldKeys[i];
+                employeeNumbers[slot] = oldNumbers[i];
+            }
+        }
+    }
+
+    // Only used for employee numbers and error messages
+    private static String text(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Pulls one row at a time out of the buffer
+    private class RowSpliterator extends Spliterators.AbstractSpliterator<TimeLog> {
+        private final ByteBuffer buffer;
+        private final int end;
+        private int position;
+
+        RowSpliterator(ByteBuffer buffer, int start, int end) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.buffer = buffer;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TimeLog> action) {
+            while (position < end) {
+                int rowEnd = rowEnd(buffer, position, end);
+                TimeLog timeLog = parseRow(buffer, position, rowEnd);
+                position = rowEnd + 1;
+
+                if (timeLog != null) {
+                    action.accept(timeLog);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
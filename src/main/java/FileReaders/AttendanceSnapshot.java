@@ -0,0 +1,198 @@
+package FileReaders;
+
+import Core.TimeLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of the parsed attendance file, used to skip text parsing on startup.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   int    magic ("PAYS")
+ *   int    format version
+ *   long   length of the source CSV
+ *   long   CRC32 of the source CSV
+ *   int    CRC32C of everything after it (the body)
+ *   int    number of distinct employee numbers, then each as (short length, UTF-8 bytes)
+ *   int    number of rows
+ *   int[]  employee id per row (index into the employee numbers above)
+ *   int[]  epoch day per row
+ *   short[] minute of day of time in per row (-1 if missing)
+ *   short[] minute of day of time out per row (-1 if missing)
+ * </pre>
+ * A snapshot is only used when the length and checksum of the source still match and
+ * the body checksum shows it was not truncated or damaged on disk.
+ */
+public class AttendanceSnapshot {
+    private static final int MAGIC = 0x50415953;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    private static final short NO_TIME = -1;
+
+    /**
+     * @param source The attendance file contents
+     * @return The CRC32 of the whole buffer
+     */
+    public static long checksum(ByteBuffer source) {
+        CRC32 crc = new CRC32();
+        crc.update(source.duplicate().clear());
+        return crc.getValue();
+    }
+
+    /**
+     * Loads the time logs from a snapshot if it matches the source file
+     * @param file The snapshot file
+     * @param sourceLength Length of the current source file
+     * @param sourceChecksum Checksum of the current source file
+     * @return The time logs in file order, or null if there is no valid snapshot
+     * @throws IOException If the snapshot exists but cannot be read
+     */
+    public static List<TimeLog> read(Path file, long sourceLength, long sourceChecksum) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        ByteBuffer buffer = AttendanceFileParser.map(file);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            System.out.println("Ignoring attendance snapshot with unknown format: " + file);
+            return null;
+        }
+        if (buffer.getLong() != sourceLength || buffer.getLong() != sourceChecksum) {
+            System.out.println("Attendance snapshot is out of date, rebuilding");
+            return null;
+        }
+        int bodyChecksum = buffer.getInt();
+        if (bodyChecksum(buffer) != bodyChecksum) {
+            System.out.println("Attendance snapshot is damaged, rebuilding");
+            return null;
+        }
+
+        String[] employeeNumbers = new String[buffer.getInt()];
+        for (int i = 0; i < employeeNumbers.length; i++) {
+            byte[] bytes = new byte[buffer.getShort()];
+            buffer.get(bytes);
+            employeeNumbers[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int rows = buffer.getInt();
+        int[] employeeIds = new int[rows];
+        int[] epochDays = new int[rows];
+        short[] minutesIn = new short[rows];
+        short[] minutesOut = new short[rows];
+        buffer.asIntBuffer().get(employeeIds);
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        buffer.asIntBuffer().get(epochDays);
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        buffer.asShortBuffer().get(minutesIn);
+        buffer.position(buffer.position() + rows * Short.BYTES);
+        buffer.asShortBuffer().get(minutesOut);
+
+        List<TimeLog> timeLogs = new ArrayList<>(rows);
+        Map<Integer, LocalDate> dates = new HashMap<>();
+        LocalDate date = null;
+        for (int i = 0; i < rows; i++) {
+            // Rows are grouped by date, so only look up when the day changes
+            if (date == null || date.toEpochDay() != epochDays[i]) {
+                date = dates.computeIfAbsent(epochDays[i], LocalDate::ofEpochDay);
+            }
+            timeLogs.add(new TimeLog(employeeNumbers[employeeIds[i]], date,
+                    toTime(minutesIn[i]), toTime(minutesOut[i])));
+        }
+        return timeLogs;
+    }
+
+    /**
+     * Writes a snapshot of the given time logs, replacing any previous one atomically
+     * @param file The snapshot file
+     * @param sourceLength Length of the source file the logs were parsed from
+     * @param sourceChecksum Checksum of that source file
+     * @param timeLogs The parsed time logs
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void write(Path file, long sourceLength, long sourceChecksum, List<TimeLog> timeLogs) throws IOException {
+        Map<String, Integer> employeeIds = new HashMap<>();
+        List<byte[]> employeeNumbers = new ArrayList<>();
+        int[] ids = new int[timeLogs.size()];
+        int dictionaryBytes = 0;
+        for (int i = 0; i < ids.length; i++) {
+            String employeeNumber = timeLogs.get(i).getEmployeeNumber();
+            Integer id = employeeIds.get(employeeNumber);
+            if (id == null) {
+                id = employeeNumbers.size();
+                employeeIds.put(employeeNumber, id);
+                byte[] bytes = employeeNumber.getBytes(StandardCharsets.UTF_8);
+                employeeNumbers.add(bytes);
+                dictionaryBytes += Short.BYTES + bytes.length;
+            }
+            ids[i] = id;
+        }
+
+        int rows = timeLogs.size();
+        int size = HEADER_BYTES
+                + Integer.BYTES + dictionaryBytes
+                + Integer.BYTES + rows * (2 * Integer.BYTES + 2 * Short.BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(sourceLength).putLong(sourceChecksum);
+        buffer.position(HEADER_BYTES);
+        buffer.putInt(employeeNumbers.size());
+        for (byte[] bytes : employeeNumbers) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.putInt(rows);
+        for (int id : ids) {
+            buffer.putInt(id);
+        }
+        for (TimeLog log : timeLogs) {
+            buffer.putInt((int) log.getDate().toEpochDay());
+        }
+        for (TimeLog log : timeLogs) {
+            buffer.putShort(toMinute(log.getTimeIn()));
+        }
+        for (TimeLog log : timeLogs) {
+            buffer.putShort(toMinute(log.getTimeOut()));
+        }
+        buffer.flip();
+        buffer.putInt(HEADER_BYTES - Integer.BYTES, bodyChecksum(buffer.duplicate().position(HEADER_BYTES)));
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), "attendance", ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // CRC32C of the bytes from the buffer's position to its limit
+    private static int bodyChecksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static short toMinute(LocalTime time) {
+        return time == null ? NO_TIME : (short) (time.getHour() * 60 + time.getMinute());
+    }
+
+    private static LocalTime toTime(short minute) {
+        return minute == NO_TIME ? null : DateTimeDecoder.timeOf(minute);
+    }
+}
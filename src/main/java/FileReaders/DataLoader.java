@@ -1,340 +1,187 @@
 package FileReaders;
 
 import Core.Employee;
+import Core.PayrollConfig;
 import Core.TimeLog;
+import DataManager.PayrollRepository;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class DataLoader {
     // Resource file names (no leading slash for class loader resources)
-    private static final String EMPLOYEE_FILE_PATH = "employee-data.tsv";
     private static final String TIME_LOG_FILE_PATH = "attendance-record.csv";
     private static final String SSS_CONTRIBUTION_FILE_PATH = "sss-contribution-table.tsv";
     private static final String WITHHOLDING_TAX_FILE_PATH = "WithholdingTax.csv";
 
-    // File paths for actual file writing (using Maven structure)
-    private static final String EMPLOYEE_OUTPUT_PATH = "src/main/resources/employee-data.tsv";
-    private static final String TIME_LOG_OUTPUT_PATH = "src/main/resources/attendance-record.csv";
+    // Binary snapshot of the parsed attendance file, kept in the cache directory
+    private static final String TIME_LOG_SNAPSHOT_FILE = "attendance-record.snap";
 
-    // Load employees from the resource file
-    public List<Employee> loadEmployees() {
-        List<Employee> employees = new ArrayList<>();
-
-        try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(EMPLOYEE_FILE_PATH);
-            if (is == null) {
-                System.err.println("Error: Could not find resource " + EMPLOYEE_FILE_PATH);
-                return employees; // Return empty list
-            }
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-                // Skip header line
-                reader.readLine();
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] fields = line.split("\t");
+    // Tax rates are fractions such as 0.32, so they keep more decimals than money
+    private static final int TAX_RATE_SCALE = 4;
 
-                    if (fields.length < 17) {
-                        System.err.println("Invalid employee data format (not enough fields): " + line);
-                        continue;
-                    }
-
-                    try {
-                        String employeeNumber = fields[0];
-                        String lastName = fields[1];
-                        String firstName = fields[2];
-                        // Extract birth date, address, phone number
-                        String birthDate = fields.length > 3 ? fields[3] : "";
-                        String address = fields.length > 4 ? fields[4] : "";
-                        String phoneNumber = fields.length > 5 ? fields[5] : "";
-                        String sssNumber = fields[6];
-                        String philhealthNumber = fields[7];
-                        String tinNumber = fields[8];
-                        String pagibigNumber = fields[9];
-                        String employmentStatus = fields.length > 10 ? fields[10] : "";
-                        String position = fields[11];
-                        String immediateSupervisor = fields.length > 12 ? fields[12] : "";
-                        double basicSalary = parseMoneyValue(fields[13]);
-                        double riceSubsidy = parseMoneyValue(fields[14]);
-                        double phoneAllowance = parseMoneyValue(fields[15]);
-                        double clothingAllowance = parseMoneyValue(fields[16]);
-                        // Default values for potentially missing fields
-                        double grossSemiMonthlyRate = basicSalary / 2; // Assuming semi-monthly rate is half of basic
-                        double hourlyRate = basicSalary / (22 * 8); // Assuming 22 working days per month, 8 hours per day
-
-                        Employee employee = new Employee(
-                                employeeNumber, lastName, firstName, birthDate, 
-                                address, phoneNumber, sssNumber, philhealthNumber,
-                                tinNumber, pagibigNumber, employmentStatus, position, 
-                                immediateSupervisor, basicSalary, riceSubsidy, phoneAllowance, clothingAllowance, 
-                                grossSemiMonthlyRate, hourlyRate
-                        );
-
-                        employees.add(employee);
-                    } catch (Exception e) {
-                        System.err.println("Error parsing employee data: " + e.getMessage());
-                        System.err.println("Problematic line: " + line);
-                        e.printStackTrace();
-                    }
-                }
-            }
+    // Whether attendance rows are parsed on one thread or split across the fork/join pool
+    private PayrollConfig.LoadMode loadMode = PayrollConfig.getAttendanceLoadMode();
 
-            System.out.println("Successfully loaded " + employees.size() + " employees");
+    public PayrollConfig.LoadMode getLoadMode() {
+        return loadMode;
+    }
 
-        } catch (IOException e) {
-            System.err.println("Error loading employee data: " + e.getMessage());
-            e.printStackTrace();
-        }
+    public void setLoadMode(PayrollConfig.LoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
 
-        return employees;
+    // Load employees: the employee file plus any logged changes not folded into it yet,
+    // so callers never see a file that lags behind the employee log
+    public List<Employee> loadEmployees() {
+        return PayrollRepository.getConfigured().getEmployees();
     }
 
     // Load time logs from the resource file
     public List<TimeLog> loadTimeLogs() {
-        List<TimeLog> timeLogs = new ArrayList<>();
+        return loadTimeLogs(LoadProgressListener.NONE);
+    }
 
+    /**
+     * Loads time logs from the resource file, reporting progress along the way
+     * @param progressListener Told how many bytes have been processed
+     * @return The time logs in file order
+     */
+    public List<TimeLog> loadTimeLogs(LoadProgressListener progressListener) {
         try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(TIME_LOG_FILE_PATH);
-            if (is == null) {
+            // Map the file and decode rows in place instead of splitting each line into Strings
+            ByteBuffer buffer = AttendanceFileParser.openResource(TIME_LOG_FILE_PATH);
+            if (buffer == null) {
                 System.err.println("Error: Could not find resource " + TIME_LOG_FILE_PATH);
-                return timeLogs; // Return empty list
+                return new ArrayList<>(); // Return empty list
             }
+            return loadTimeLogs(buffer, progressListener);
+        } catch (IOException e) {
+            System.err.println("Error loading time log data: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-                // Skip header line
-                reader.readLine();
-
-                String line;
-                DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-
-                while ((line = reader.readLine()) != null) {
-                    String[] fields = line.split(",");  // Changed to comma separator for CSV format
+    /**
+     * Loads time logs from an attendance file the caller has already opened, so the caller
+     * knows exactly which bytes were loaded
+     * @param buffer The whole attendance file (see AttendanceFileParser.openResource)
+     * @param progressListener Told how many bytes have been processed
+     * @return The time logs in file order
+     */
+    public List<TimeLog> loadTimeLogs(ByteBuffer buffer, LoadProgressListener progressListener) {
+        List<TimeLog> timeLogs;
+
+        // Reuse the binary snapshot from a previous run if the CSV has not changed
+        long checksum = 0;
+        List<TimeLog> snapshot = null;
+        if (PayrollConfig.isAttendanceSnapshotEnabled()) {
+            checksum = AttendanceSnapshot.checksum(buffer);
+            snapshot = readSnapshot(buffer.limit(), checksum);
+        }
 
-                    if (fields.length < 6) {
-                        System.err.println("Invalid time log format (not enough fields): " + line);
-                        continue;
-                    }
+        if (snapshot != null) {
+            timeLogs = snapshot;
+            progressListener.onProgress(buffer.limit(), buffer.limit());
+        } else {
+            if (loadMode == PayrollConfig.LoadMode.PARALLEL) {
+                timeLogs = new ParallelAttendanceParser().parse(buffer, progressListener);
+            } else {
+                AttendanceFileParser parser = new AttendanceFileParser();
+                parser.setProgressListener(progressListener);
+                timeLogs = parser.parse(buffer);
+            }
 
-                    try {
-                        String employeeNumber = fields[0];
-                        LocalDate date = LocalDate.parse(fields[3], dateFormatter);
-
-                        // Parse time in and time out
-                        LocalTime timeIn = null;
-                        if (!fields[4].isEmpty()) {
-                            try {
-                                timeIn = parseTimeString(fields[4]);
-                            } catch (Exception e) {
-                                System.err.println("Error parsing time log line: " + line + " - " + e.getMessage());
-                                // Continue with null timeIn instead of throwing the exception
-                                // No need to rethrow the exception
-                            }
-                        }
+            if (PayrollConfig.isAttendanceSnapshotEnabled()) {
+                writeSnapshot(buffer.limit(), checksum, timeLogs);
+            }
+        }
 
-                        LocalTime timeOut = null;
-                        if (!fields[5].isEmpty()) {
-                            try {
-                                timeOut = parseTimeString(fields[5]);
-                            } catch (Exception e) {
-                                System.err.println("Error parsing time log line: " + line + " - " + e.getMessage());
-                                // Continue with null timeOut instead of throwing the exception
-                                // No need to rethrow the exception
-                            }
-                        }
+        System.out.println("Successfully loaded " + timeLogs.size() + " time logs");
+        return timeLogs;
+    }
 
-                        // Create TimeLog with the correct parameter types
-                        TimeLog timeLog = new TimeLog(employeeNumber, date, timeIn, timeOut);
-                        timeLogs.add(timeLog);
-                    } catch (Exception e) {
-                        System.err.println("Error parsing time log: " + line + " - " + e.getMessage());
-                    }
-                }
+    private List<TimeLog> readSnapshot(long sourceLength, long checksum) {
+        Path snapshotFile = PayrollConfig.getCacheDirectory().resolve(TIME_LOG_SNAPSHOT_FILE);
+        try {
+            List<TimeLog> timeLogs = AttendanceSnapshot.read(snapshotFile, sourceLength, checksum);
+            if (timeLogs != null) {
+                System.out.println("Loaded time logs from snapshot " + snapshotFile);
             }
+            return timeLogs;
+        } catch (IOException | RuntimeException e) {
+            // A damaged snapshot is not fatal, the CSV is still the source of truth
+            System.err.println("Error reading attendance snapshot: " + e.getMessage());
+            return null;
+        }
+    }
 
-            System.out.println("Successfully loaded " + timeLogs.size() + " time logs");
+    private void writeSnapshot(long sourceLength, long checksum, List<TimeLog> timeLogs) {
+        Path snapshotFile = PayrollConfig.getCacheDirectory().resolve(TIME_LOG_SNAPSHOT_FILE);
+        try {
+            AttendanceSnapshot.write(snapshotFile, sourceLength, checksum, timeLogs);
+        } catch (IOException e) {
+            System.err.println("Error writing attendance snapshot: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Streams time logs from the resource file without building the whole list.
+     * Rows are parsed as the stream is consumed and can be garbage collected right after.
+     * @return A sequential stream of time logs in file order (empty if the file is missing)
+     */
+    public Stream<TimeLog> streamTimeLogs() {
+        try {
+            ByteBuffer buffer = AttendanceFileParser.openResource(TIME_LOG_FILE_PATH);
+            if (buffer == null) {
+                System.err.println("Error: Could not find resource " + TIME_LOG_FILE_PATH);
+                return Stream.empty();
+            }
+            return new AttendanceFileParser().stream(buffer);
         } catch (IOException e) {
             System.err.println("Error loading time log data: " + e.getMessage());
             e.printStackTrace();
+            return Stream.empty();
         }
-
-        return timeLogs;
     }
 
     /**
      * Saves a new employee record to the employee data file
      * @param employee The employee to save
-     * @return true if successful, false otherwise
+     * @return true if successful, false otherwise (e.g. the employee number is taken)
      */
     public boolean saveEmployee(Employee employee) {
-        try {
-            // Make sure directory exists
-            File outputDir = new File(EMPLOYEE_OUTPUT_PATH).getParentFile();
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
-            }
-
-            // First, read the entire file to get the header and existing data
-            List<String> lines = new ArrayList<>();
-            String header = "";
-
-            // Check if file exists
-            File employeeFile = new File(EMPLOYEE_OUTPUT_PATH);
-            if (employeeFile.exists()) {
-                try (BufferedReader reader = new BufferedReader(new FileReader(employeeFile))) {
-                    header = reader.readLine(); // Save the header
-                    if (header != null) {
-                        lines.add(header);
-                    } else {
-                        // File exists but is empty, create a header
-                        header = "Employee #\tLast Name\tFirst Name\tBirthday\tAddress\tPhone Number\tSSS #\tPhilhealth #\tTIN #\tPag-ibig #\tStatus\tPosition\tImmediate Supervisor\tBasic Salary\tRice Subsidy\tPhone Allowance\tClothing Allowance\tGross Semi-monthly Rate\tHourly Rate";
-                        lines.add(header);
-                    }
-
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        lines.add(line);
-                    }
-                }
-            } else {
-                // File doesn't exist, create header
-                header = "Employee #\tLast Name\tFirst Name\tBirthday\tAddress\tPhone Number\tSSS #\tPhilhealth #\tTIN #\tPag-ibig #\tStatus\tPosition\tImmediate Supervisor\tBasic Salary\tRice Subsidy\tPhone Allowance\tClothing Allowance\tGross Semi-monthly Rate\tHourly Rate";
-                lines.add(header);
-            }
-
-            // Format the new employee data
-            String newEmployeeData = String.format("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%,.0f\t%,.0f\t%,.0f\t%,.0f\t%,.0f\t%.2f",
-                    employee.getEmployeeNumber(),
-                    employee.getLastName(),
-                    employee.getFirstName(),
-                    "", // Birthday placeholder
-                    "", // Address placeholder
-                    "", // Phone placeholder
-                    employee.getSssNumber(),
-                    employee.getPhilhealthNumber(),
-                    employee.getTinNumber(),
-                    employee.getPagIbigNumber(),
-                    "Regular", // Status placeholder
-                    employee.getPosition(),
-                    "", // Supervisor placeholder
-                    employee.getBasicSalary(),
-                    employee.getRiceSubsidy(),
-                    employee.getPhoneAllowance(),
-                    employee.getClothingAllowance(),
-                    employee.getBasicSalary() / 2, // Semi-monthly rate
-                    employee.getBasicSalary() / 168 // Hourly rate (assuming 168 work hours per month)
-            );
-
-            lines.add(newEmployeeData);
-
-            // Write all lines back to the file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(EMPLOYEE_OUTPUT_PATH))) {
-                for (String line : lines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
-
+        // Goes through the shared repository so its cache and the file stay in step
+        boolean saved = PayrollRepository.getConfigured().addEmployee(employee);
+        if (saved) {
             System.out.println("Employee record saved successfully.");
-            return true;
-
-        } catch (IOException e) {
-            System.err.println("Error saving employee data: " + e.getMessage());
-            e.printStackTrace();
-            return false;
         }
+        return saved;
     }
 
     /**
-     * Saves a new time log record to the attendance file
+     * Saves a new time log record to the attendance file. The row is appended, so the
+     * cost does not grow with the size of the file; when it reaches the disk is set by
+     * the fsync policy (-Dpayroll.attendance.fsync=always|interval|batch), where a single
+     * save counts as its own batch. For bursts of punches use PunchIngestionQueue, which
+     * writes them in batches.
      * @param timeLog The time log to save
      * @param employeeLastName The employee's last name
      * @param employeeFirstName The employee's first name
      * @return true if successful, false otherwise
      */
     public boolean saveTimeLog(TimeLog timeLog, String employeeLastName, String employeeFirstName) {
-        try {
-            // Make sure directory exists
-            File outputDir = new File(TIME_LOG_OUTPUT_PATH).getParentFile();
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
-            }
-
-            // First, read the entire file to get the header and existing data
-            List<String> lines = new ArrayList<>();
-            String header = "";
-
-            // Check if file exists
-            File timeLogFile = new File(TIME_LOG_OUTPUT_PATH);
-            if (timeLogFile.exists()) {
-                try (BufferedReader reader = new BufferedReader(new FileReader(timeLogFile))) {
-                    header = reader.readLine(); // Save the header
-                    if (header != null) {
-                        lines.add(header);
-                    } else {
-                        // File exists but is empty, create a header
-                        header = "Employee #,Last Name,First Name,Date,Log In,Log Out";
-                        lines.add(header);
-                    }
-
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        lines.add(line);
-                    }
-                }
-            } else {
-                // File doesn't exist, create header
-                header = "Employee #,Last Name,First Name,Date,Log In,Log Out";
-                lines.add(header);
-            }
-
-            // Format date and times
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("H:mm");
-
-            LocalDate date = timeLog.getDate();
-            LocalTime timeIn = timeLog.getTimeIn();
-            LocalTime timeOut = timeLog.getTimeOut();
-
-            String formattedDate = date != null ? date.format(dateFormatter) : "";
-            String formattedTimeIn = timeIn != null ? timeIn.format(timeFormatter) : "";
-            String formattedTimeOut = timeOut != null ? timeOut.format(timeFormatter) : "";
-
-            // Format the new time log data
-            String newTimeLogData = String.format("%s,%s,%s,%s,%s,%s",
-                    timeLog.getEmployeeNumber(),
-                    employeeLastName,
-                    employeeFirstName,
-                    formattedDate,
-                    formattedTimeIn,
-                    formattedTimeOut
-            );
-
-            lines.add(newTimeLogData);
-
-            // Write all lines back to the file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(TIME_LOG_OUTPUT_PATH))) {
-                for (String line : lines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
-
+        // Goes through the shared repository so the cached time logs include the new row
+        boolean saved = PayrollRepository.getConfigured().appendTimeLog(timeLog, employeeLastName, employeeFirstName);
+        if (saved) {
             System.out.println("Time log record saved successfully.");
-            return true;
-
-        } catch (IOException e) {
-            System.err.println("Error saving time log data: " + e.getMessage());
-            e.printStackTrace();
-            return false;
         }
+        return saved;
     }
 
     /**
@@ -343,82 +190,17 @@ public class DataLoader {
      * @return true if successful, false otherwise
      */
     public boolean updateEmployee(Employee updatedEmployee) {
-        try {
-            // Check if file exists
-            File employeeFile = new File(EMPLOYEE_OUTPUT_PATH);
-            if (!employeeFile.exists()) {
-                System.err.println("Employee file does not exist. Cannot update.");
-                return false;
-            }
-
-            // Read the entire file
-            List<String> lines = new ArrayList<>();
-            String header = "";
-            boolean found = false;
-
-            try (BufferedReader reader = new BufferedReader(new FileReader(EMPLOYEE_OUTPUT_PATH))) {
-                header = reader.readLine(); // Save the header
-                lines.add(header);
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] fields = line.split("\t");
-                    if (fields.length == 0) continue;
-
-                    String employeeNumber = fields[0];
-
-                    if (employeeNumber.equals(updatedEmployee.getEmployeeNumber())) {
-                        // Replace this line with updated employee data
-                        String updatedData = String.format("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%,.0f\t%,.0f\t%,.0f\t%,.0f\t%,.0f\t%.2f",
-                                updatedEmployee.getEmployeeNumber(),
-                                updatedEmployee.getLastName(),
-                                updatedEmployee.getFirstName(),
-                                fields.length > 3 ? fields[3] : "", // Preserve existing birthday
-                                fields.length > 4 ? fields[4] : "", // Preserve existing address
-                                fields.length > 5 ? fields[5] : "", // Preserve existing phone
-                                updatedEmployee.getSssNumber(),
-                                updatedEmployee.getPhilhealthNumber(),
-                                updatedEmployee.getTinNumber(),
-                                updatedEmployee.getPagIbigNumber(),
-                                fields.length > 10 ? fields[10] : "Regular", // Preserve existing status
-                                updatedEmployee.getPosition(),
-                                fields.length > 12 ? fields[12] : "", // Preserve existing supervisor
-                                updatedEmployee.getBasicSalary(),
-                                updatedEmployee.getRiceSubsidy(),
-                                updatedEmployee.getPhoneAllowance(),
-                                updatedEmployee.getClothingAllowance(),
-                                updatedEmployee.getBasicSalary() / 2, // Semi-monthly rate
-                                updatedEmployee.getBasicSalary() / 168 // Hourly rate
-                        );
-                        lines.add(updatedData);
-                        found = true;
-                    } else {
-                        lines.add(line);
-                    }
-                }
-            }
-
-            if (!found) {
-                System.err.println("Employee not found. Cannot update.");
-                return false;
-            }
-
-            // Write all lines back to the file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(EMPLOYEE_OUTPUT_PATH))) {
-                for (String line : lines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
+        PayrollRepository repository = PayrollRepository.getConfigured();
+        if (repository.getEmployee(updatedEmployee.getEmployeeNumber()) == null) {
+            System.err.println("Employee not found. Cannot update.");
+            return false;
+        }
 
+        boolean updated = repository.updateEmployee(updatedEmployee);
+        if (updated) {
             System.out.println("Employee record updated successfully.");
-            return true;
-
-        } catch (IOException e) {
-            System.err.println("Error updating employee data: " + e.getMessage());
-            e.printStackTrace();
-            return false;
         }
+        return updated;
     }
 
     /**
@@ -444,11 +226,19 @@ public class DataLoader {
                     try {
                         String[] fields = line.split("\t");
                         if (fields.length >= 4) {
-                            double minRange = Double.parseDouble(fields[0].trim());
-                            double maxRange = Double.parseDouble(fields[2].trim());
-                            double contributionAmount = Double.parseDouble(fields[3].trim());
+                            // Ranges use thousands separators (e.g. "3,250"), which the shared parser accepts
+                            long minRange = MoneyParser.parseCentavos(fields[0]);
+                            long maxRange = MoneyParser.parseCentavos(fields[2]);
+                            long contributionAmount = MoneyParser.parseCentavos(fields[3]);
+                            if (minRange == MoneyParser.INVALID || maxRange == MoneyParser.INVALID
+                                    || contributionAmount == MoneyParser.INVALID) {
+                                throw new NumberFormatException("Invalid amount");
+                            }
 
-                            SSSContribution contribution = new SSSContribution(minRange, maxRange, contributionAmount);
+                            SSSContribution contribution = new SSSContribution(
+                                    MoneyParser.toAmount(minRange),
+                                    MoneyParser.toAmount(maxRange),
+                                    MoneyParser.toAmount(contributionAmount));
                             contributions.add(contribution);
                         }
                     } catch (Exception e) {
@@ -490,12 +280,20 @@ public class DataLoader {
                     try {
                         String[] fields = line.split(",");
                         if (fields.length >= 4) {
-                            double upperLimit = Double.parseDouble(fields[0].trim());
-                            double lowerLimit = Double.parseDouble(fields[1].trim());
-                            double taxRate = Double.parseDouble(fields[2].trim());
-                            double baseAmount = Double.parseDouble(fields[3].trim());
+                            long upperLimit = MoneyParser.parseCentavos(fields[0]);
+                            long lowerLimit = MoneyParser.parseCentavos(fields[1]);
+                            long taxRate = MoneyParser.parseFixed(fields[2], 0, fields[2].length(), TAX_RATE_SCALE);
+                            long baseAmount = MoneyParser.parseCentavos(fields[3]);
+                            if (upperLimit == MoneyParser.INVALID || lowerLimit == MoneyParser.INVALID
+                                    || taxRate == MoneyParser.INVALID || baseAmount == MoneyParser.INVALID) {
+                                throw new NumberFormatException("Invalid amount");
+                            }
 
-                            TaxBracket bracket = new TaxBracket(upperLimit, lowerLimit, taxRate, baseAmount);
+                            TaxBracket bracket = new TaxBracket(
+                                    MoneyParser.toAmount(upperLimit),
+                                    MoneyParser.toAmount(lowerLimit),
+                                    MoneyParser.toDouble(taxRate, TAX_RATE_SCALE),
+                                    MoneyParser.toAmount(baseAmount));
                             taxBrackets.add(bracket);
                         }
                     } catch (Exception e) {
@@ -562,58 +360,4 @@ public class DataLoader {
             return baseAmount + (income - lowerLimit) * taxRate;
         }
     }
-
-    // Helper method to parse money values that might contain commas
-    private double parseMoneyValue(String value) {
-        if (value == null || value.trim().isEmpty()) {
-            return 0.0;
-        }
-
-        // Check if the value looks like a number (contains digits and possibly commas and decimal point)
-        if (!value.matches("^[\\d,]+(\\.[\\d]+)?$")) {
-            System.err.println("Error parsing money value: " + value);
-            return 0.0;
-        }
-
-        // Remove commas and other non-numeric characters except for decimal point
-        String cleanValue = value.replace(",", "").trim();
-        try {
-            return Double.parseDouble(cleanValue);
-        } catch (NumberFormatException e) {
-            System.err.println("Error parsing money value: " + value);
-            return 0.0;
-        }
-    }
-
-    /**
-     * Helper method to parse time strings in the format "H:mm" or "HH:mm"
-     * @param timeString The time string to parse
-     * @return A LocalTime object representing the parsed time
-     * @throws Exception If the time string cannot be parsed
-     */
-    private LocalTime parseTimeString(String timeString) throws Exception {
-        if (timeString == null || timeString.trim().isEmpty()) {
-            return null;
-        }
-
-        // Split the time string by colon
-        String[] parts = timeString.split(":");
-        if (parts.length != 2) {
-            throw new Exception("Invalid time format: " + timeString);
-        }
-
-        try {
-            int hour = Integer.parseInt(parts[0].trim());
-            int minute = Integer.parseInt(parts[1].trim());
-
-            // Validate hour and minute
-            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
-                throw new Exception("Invalid time values: " + timeString);
-            }
-
-            return LocalTime.of(hour, minute);
-        } catch (NumberFormatException e) {
-            throw new Exception("Invalid time format: " + timeString);
-        }
-    }
-}
+}
\ No newline at end of file
@@ -0,0 +1,239 @@
+package FileReaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Decodes the attendance date ("MM/dd/yyyy") and time ("H:mm") fields without
+ * DateTimeFormatter. Attendance files only contain a few hundred distinct dates and at
+ * most 1,440 distinct times, so dates are cached by their numeric form and times come
+ * from a prebuilt table indexed by minute of day.
+ *
+ * The time table is shared; the date cache belongs to the instance, so use one decoder
+ * per thread (each AttendanceFileParser owns one).
+ */
+public class DateTimeDecoder {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final LocalTime[] TIMES = new LocalTime[MINUTES_PER_DAY];
+
+    static {
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            TIMES[minute] = LocalTime.of(minute / 60, minute % 60);
+        }
+    }
+
+    // Open-addressing cache of packed year/month/day keys to dates
+    private int[] dateKeys = new int[512];
+    private LocalDate[] dates = new LocalDate[512];
+    private int cachedDates;
+
+    // Rows are usually grouped by date, so remember the last one
+    private int lastDateKey = -1;
+    private LocalDate lastDate;
+
+    /**
+     * @param minuteOfDay Minutes since midnight (0-1439)
+     * @return The shared LocalTime for that minute
+     */
+    public static LocalTime timeOf(int minuteOfDay) {
+        return TIMES[minuteOfDay];
+    }
+
+    /**
+     * Decodes an "H:mm" or "HH:mm" time, ignoring surrounding spaces
+     * @return The time, or null if the field is blank
+     * @throws DateTimeException If the field is not a valid time
+     */
+    public LocalTime decodeTime(ByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        int colon = indexOf(buffer, start, end, (byte) ':');
+        int hour = colon < 0 ? -1 : parseDigits(buffer, start, colon);
+        int minute = colon < 0 ? -1 : parseDigits(buffer, colon + 1, end);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            throw new DateTimeException("Invalid time format: " + text(buffer, start, end));
+        }
+
+        return TIMES[hour * 60 + minute];
+    }
+
+    /**
+     * String counterpart of {@link #decodeTime(ByteBuffer, int, int)}
+     */
+    public LocalTime decodeTime(CharSequence value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        int colon = indexOf(value, start, end, ':');
+        int hour = colon < 0 ? -1 : parseDigits(value, start, colon);
+        int minute = colon < 0 ? -1 : parseDigits(value, colon + 1, end);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            throw new DateTimeException("Invalid time format: " + value);
+        }
+
+        return TIMES[hour * 60 + minute];
+    }
+
+    /**
+     * Decodes an "MM/dd/yyyy" date
+     * @throws DateTimeException If the field is not a valid date
+     */
+    public LocalDate decodeDate(ByteBuffer buffer, int start, int end) {
+        int firstSlash = indexOf(buffer, start, end, (byte) '/');
+        int secondSlash = firstSlash < 0 ? -1 : indexOf(buffer, firstSlash + 1, end, (byte) '/');
+        int month = secondSlash < 0 ? -1 : parseDigits(buffer, start, firstSlash);
+        int day = secondSlash < 0 ? -1 : parseDigits(buffer, firstSlash + 1, secondSlash);
+        int year = secondSlash < 0 ? -1 : parseDigits(buffer, secondSlash + 1, end);
+        if (month < 0 || day < 0 || year < 0 || year > 9999) {
+            throw new DateTimeException("Invalid date: " + text(buffer, start, end));
+        }
+
+        return date(year, month, day);
+    }
+
+    /**
+     * String counterpart of {@link #decodeDate(ByteBuffer, int, int)}
+     */
+    public LocalDate decodeDate(CharSequence value) {
+        int end = value.length();
+        int firstSlash = indexOf(value, 0, end, '/');
+        int secondSlash = firstSlash < 0 ? -1 : indexOf(value, firstSlash + 1, end, '/');
+        int month = secondSlash < 0 ? -1 : parseDigits(value, 0, firstSlash);
+        int day = secondSlash < 0 ? -1 : parseDigits(value, firstSlash + 1, secondSlash);
+        int year = secondSlash < 0 ? -1 : parseDigits(value, secondSlash + 1, end);
+        if (month < 0 || day < 0 || year < 0 || year > 9999) {
+            throw new DateTimeException("Invalid date: " + value);
+        }
+
+        return date(year, month, day);
+    }
+
+    // Looks up or creates the date; LocalDate.of validates the values on a miss
+    private LocalDate date(int year, int month, int day) {
+        if (month > 12 || day > 31) {
+            throw new DateTimeException("Invalid date: " + month + "/" + day + "/" + year);
+        }
+
+        int key = (year << 9) | (month << 5) | day;
+        if (key == lastDateKey) {
+            return lastDate;
+        }
+
+        int mask = dateKeys.length - 1;
+        int slot = (key * 0x9E3779B9 >>> 16) & mask;
+        while (dates[slot] != null) {
+            if (dateKeys[slot] == key) {
+                lastDateKey = key;
+                lastDate = dates[slot];
+                return lastDate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        LocalDate date = LocalDate.of(year, month, day);
+        dateKeys[slot] = key;
+        dates[slot] = date;
+        if (++cachedDates * 2 > dateKeys.length) {
+            growDateCache();
+        }
+
+        lastDateKey = key;
+        lastDate = date;
+        return date;
+    }
+
+    private void growDateCache() {
+        int[] oldKeys = dateKeys;
+        LocalDate[] oldDates = dates;
+        dateKeys = new int[oldKeys.length * 2];
+        dates = new LocalDate[oldDates.length * 2];
+
+        int mask = dateKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldDates[i] != null) {
+                int slot = (oldKeys[i] * 0x9E3779B9 >>> 16) & mask;
+                while (dates[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                dateKeys[slot] = oldKeys[i];
+                dates[slot] = oldDates[i];
+            }
+        }
+    }
+
+    // Parses a non-empty run of at most 9 ASCII digits, returning -1 otherwise
+    static int parseDigits(ByteBuffer buffer, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int parseDigits(CharSequence value, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    static int indexOf(ByteBuffer buffer, int start, int end, byte target) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence value, int start, int end, char target) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String text(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package FileReaders;
+
+import Core.Employee;
+
+/**
+ * Reads and writes rows of the employee TSV file. This is the only place that knows the
+ * column layout, so every loader and writer agrees on it.
+ */
+public final class EmployeeRecordFormat {
+    public static final String HEADER = "Employee #\tLast Name\tFirst Name\tBirthday\tAddress\tPhone Number"
+            + "\tSSS #\tPhilhealth #\tTIN #\tPag-ibig #\tStatus\tPosition\tImmediate Supervisor"
+            + "\tBasic Salary\tRice Subsidy\tPhone Allowance\tClothing Allowance"
+            + "\tGross Semi-monthly Rate\tHourly Rate";
+
+    // Columns up to Clothing Allowance are required. The two rates after them are derived
+    // from the basic salary on every read and write, so a stale value never survives.
+    public static final int MIN_COLUMNS = 17;
+
+    private EmployeeRecordFormat() {
+    }
+
+    /**
+     * Parses one data row of the employee file
+     * @param line The tab-separated row
+     * @return The employee, or null if the row is invalid (the problem is reported)
+     */
+    public static Employee parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length < MIN_COLUMNS) {
+            System.err.println("Invalid employee data format (" + fields.length
+                    + " columns, expected at least " + MIN_COLUMNS + "): " + line);
+            return null;
+        }
+
+        try {
+            double basicSalary = MoneyParser.parseAmount(fields[13]);
+            double riceSubsidy = MoneyParser.parseAmount(fields[14]);
+            double phoneAllowance = MoneyParser.parseAmount(fields[15]);
+            double clothingAllowance = MoneyParser.parseAmount(fields[16]);
+
+            return new Employee(
+                    fields[0],  // Employee Number
+                    fields[1],  // Last Name
+                    fields[2],  // First Name
+                    fields[3],  // Birthday
+                    fields[4],  // Address
+                    fields[5],  // Phone Number
+                    fields[6],  // SSS Number
+                    fields[7],  // Philhealth Number
+                    fields[8],  // TIN Number
+                    fields[9],  // Pag-ibig Number
+                    fields[10], // Status
+                    fields[11], // Position
+                    fields[12], // Immediate Supervisor
+                    basicSalary,
+                    riceSubsidy,
+                    phoneAllowance,
+                    clothingAllowance,
+                    Employee.semiMonthlyRateOf(basicSalary),
+                    Employee.hourlyRateOf(basicSalary)
+            );
+        } catch (RuntimeException e) {
+            System.err.println("Error parsing employee data: " + e.getMessage());
+            System.err.println("Problematic line: " + line);
+            return null;
+        }
+    }
+
+    /**
+     * Formats an employee as a full data row (all columns, no line terminator)
+     * @param employee The employee to format
+     * @return The tab-separated row
+     */
+    public static String format(Employee employee) {
+        return String.join("\t",
+                text(employee.getEmployeeNumber()),
+                text(employee.getLastName()),
+                text(employee.getFirstName()),
+                text(employee.getBirthDate()),
+                text(employee.getAddress()),
+                text(employee.getPhoneNumber()),
+                text(employee.getSssNumber()),
+                text(employee.getPhilhealthNumber()),
+                text(employee.getTinNumber()),
+                text(employee.getPagIbigNumber()),
+                text(employee.getStatus()),
+                text(employee.getPosition()),
+                text(employee.getImmediateSupervisor()),
+                MoneyParser.formatAmount(employee.getBasicSalary()),
+                MoneyParser.formatAmount(employee.getRiceSubsidy()),
+                MoneyParser.formatAmount(employee.getPhoneAllowance()),
+                MoneyParser.formatAmount(employee.getClothingAllowance()),
+                MoneyParser.formatAmount(Employee.semiMonthlyRateOf(employee.getBasicSalary())),
+                MoneyParser.formatAmount(Employee.hourlyRateOf(employee.getBasicSalary())));
+    }
+
+    /**
+     * @param line A data row
+     * @return The employee number in the row (its first column)
+     */
+    public static String employeeNumber(String line) {
+        int tab = line.indexOf('\t');
+        return tab < 0 ? line : line.substring(0, tab);
+    }
+
+    // Tabs and line breaks would break the row apart, so replace them with spaces
+    private static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,16 @@
+package FileReaders;
+
+/**
+ * Receives progress updates while a data file is being loaded.
+ * May be called from a background or fork/join thread.
+ */
+@FunctionalInterface
+public interface LoadProgressListener {
+    LoadProgressListener NONE = (loaded, total) -> { };
+
+    /**
+     * @param loaded Bytes processed so far
+     * @param total Total bytes to process
+     */
+    void onProgress(long loaded, long total);
+}
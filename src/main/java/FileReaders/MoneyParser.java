@@ -0,0 +1,158 @@
+package FileReaders;
+
+import java.util.Locale;
+
+/**
+ * Decodes amounts such as "90,000", "1,057.50" or "535.71" into fixed-point longs
+ * (centavos by default) in a single pass over the characters. No regex,
+ * no intermediate Strings and no Double.parseDouble. Shared by every loader.
+ *
+ * Accepted format: optional surrounding spaces, digits with optional thousands
+ * separators, then an optional '.' and fraction digits. Fraction digits beyond the
+ * requested scale are rounded half-up.
+ */
+public final class MoneyParser {
+    // Returned by the parse methods when the text is not a valid amount
+    public static final long INVALID = Long.MIN_VALUE;
+
+    public static final int CENTAVO_SCALE = 2;
+
+    // Most significant digits (integer part plus scale) that always fit in a long
+    private static final int MAX_DIGITS = 18;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private MoneyParser() {
+    }
+
+    /**
+     * Parses a money value, treating blank as zero and reporting invalid values.
+     * This is the drop-in replacement for the old per-loader parseMoneyValue helpers.
+     * @param value The text to parse, e.g. "90,000"
+     * @return The amount in pesos, or 0.0 if blank or invalid
+     */
+    public static double parseAmount(String value) {
+        if (value == null) {
+            return 0.0;
+        }
+        long centavos = parseCentavos(value);
+        if (centavos == INVALID) {
+            System.err.println("Error parsing money value: " + value);
+            return 0.0;
+        }
+        return toAmount(centavos);
+    }
+
+    /**
+     * @param value The text to parse
+     * @return The value in centavos, 0 if blank, or {@link #INVALID}
+     */
+    public static long parseCentavos(CharSequence value) {
+        return parseFixed(value, 0, value.length(), CENTAVO_SCALE);
+    }
+
+    /**
+     * Parses a decimal number as a long scaled by 10^scale, e.g. "0.25" at scale 4 is 2500
+     * @param value The text to parse
+     * @param start Index of the first character
+     * @param end Index just past the last character
+     * @param scale Number of fraction digits to keep (0-6)
+     * @return The scaled value, 0 if blank, or {@link #INVALID}
+     */
+    public static long parseFixed(CharSequence value, int start, int end, int scale) {
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        long whole = 0;
+        int digits = 0;
+        int i = start;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits + scale > MAX_DIGITS) {
+                    return INVALID;
+                }
+                whole = whole * 10 + (c - '0');
+            } else if (c == ',') {
+                // A separator must sit between digits
+                if (digits == 0 || i + 1 >= end || !isDigit(value.charAt(i + 1))) {
+                    return INVALID;
+                }
+            } else {
+                break;
+            }
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < end) {
+            if (value.charAt(i) != '.' || digits == 0 || i + 1 >= end) {
+                return INVALID;
+            }
+            for (i++; i < end; i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return INVALID;
+                }
+                if (fractionDigits < scale) {
+                    fraction = fraction * 10 + (c - '0');
+                } else if (fractionDigits == scale) {
+                    roundUp = c >= '5';
+                }
+                fractionDigits++;
+            }
+        }
+
+        return scale(whole, fraction, Math.min(fractionDigits, scale), scale, roundUp);
+    }
+
+    /**
+     * @param centavos An amount in centavos
+     * @return The same amount in pesos
+     */
+    public static double toAmount(long centavos) {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Formats an amount the way the data files write it: thousands separators, and
+     * centavos only when there are any (e.g. "90,000" or "535.71")
+     * @param amount The amount in pesos
+     * @return The formatted amount, which parseCentavos reads back unchanged
+     */
+    public static String formatAmount(double amount) {
+        long centavos = Math.round(amount * 100);
+        if (centavos % 100 == 0) {
+            return String.format(Locale.US, "%,d", centavos / 100);
+        }
+        return String.format(Locale.US, "%,.2f", toAmount(centavos));
+    }
+
+    /**
+     * @param fixed A value returned by parseFixed
+     * @param scale The scale it was parsed with
+     * @return The value as a double
+     */
+    public static double toDouble(long fixed, int scale) {
+        return (double) fixed / POWERS_OF_TEN[scale];
+    }
+
+    private static long scale(long whole, long fraction, int fractionDigits, int scale, boolean roundUp) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported scale: " + scale);
+        }
+        long value = whole * POWERS_OF_TEN[scale] + fraction * POWERS_OF_TEN[scale - fractionDigits];
+        return roundUp ? value + 1 : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
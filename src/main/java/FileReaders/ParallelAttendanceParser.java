@@ -0,0 +1,121 @@
+package FileReaders;
+
+import Core.TimeLog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses an attendance file on several threads. The data rows are cut into byte
+ * ranges that start and end on line boundaries, each range is parsed by its own
+ * fork/join task, and the partial results are concatenated in file order.
+ */
+public class ParallelAttendanceParser {
+    // Ranges smaller than this are not worth a task of their own
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    private final ForkJoinPool pool;
+
+    public ParallelAttendanceParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelAttendanceParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Parses every data row of the file
+     * @param buffer The attendance file contents, including the header line
+     * @return The parsed time logs in file order
+     */
+    public List<TimeLog> parse(ByteBuffer buffer) {
+        return parse(buffer, LoadProgressListener.NONE);
+    }
+
+    /**
+     * Parses every data row of the file, reporting progress as ranges complete
+     * @param buffer The attendance file contents, including the header line
+     * @param progressListener Told about completed bytes; called from pool threads
+     * @return The parsed time logs in file order
+     */
+    public List<TimeLog> parse(ByteBuffer buffer, LoadProgressListener progressListener) {
+        int start = AttendanceFileParser.dataStart(buffer);
+        int end = buffer.limit();
+
+        int chunkSize = Math.max(MIN_CHUNK_BYTES, (end - start) / (pool.getParallelism() * 4));
+        List<ChunkTask> tasks = new ArrayList<>();
+        AtomicLong completed = new AtomicLong(start);
+        while (start < end) {
+            int chunkEnd = nextRowStart(buffer, Math.min(end, start + chunkSize), end);
+            tasks.add(new ChunkTask(buffer, start, chunkEnd, completed, progressListener));
+            start = chunkEnd;
+        }
+
+        if (tasks.size() == 1) {
+            return tasks.get(0).compute();
+        }
+
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            }
+        });
+
+        int total = 0;
+        for (ChunkTask task : tasks) {
+            total += task.join().size();
+        }
+        List<TimeLog> timeLogs = new ArrayList<>(total);
+        for (ChunkTask task : tasks) {
+            timeLogs.addAll(task.join());
+        }
+        return timeLogs;
+    }
+
+    // Moves an offset forward to the start of the next row
+    private static int nextRowStart(ByteBuffer buffer, int offset, int end) {
+        if (offset == end || buffer.get(offset - 1) == '\n') {
+            return offset;
+        }
+        while (offset < end && buffer.get(offset) != '\n') {
+            offset++;
+        }
+        return Math.min(end, offset + 1);
+    }
+
+    // Fork/join tasks are Serializable only by inheritance; these are never serialized
+    private static class ChunkTask extends RecursiveTask<List<TimeLog>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final AtomicLong completed;
+        private final transient LoadProgressListener progressListener;
+
+        ChunkTask(ByteBuffer buffer, int start, int end, AtomicLong completed, LoadProgressListener progressListener) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.completed = completed;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        protected List<TimeLog> compute() {
+            // Absolute reads do not touch the buffer position, so ranges can share it
+            List<TimeLog> timeLogs = new ArrayList<>();
+            new AttendanceFileParser().parse(buffer, start, end, timeLogs::add);
+            progressListener.onProgress(completed.addAndGet(end - start), buffer.limit());
+            return timeLogs;
+        }
+    }
+}
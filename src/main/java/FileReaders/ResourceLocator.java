@@ -0,0 +1,48 @@
+package FileReaders;
+
+import Core.PayrollConfig;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Finds where a classpath resource or data file lives on disk
+ */
+public final class ResourceLocator {
+    private ResourceLocator() {
+    }
+
+    /**
+     * @param resourceName The resource name (no leading slash)
+     * @return The file backing the resource, or null if it is missing or inside a jar
+     */
+    public static Path resolve(String resourceName) {
+        URL url = ResourceLocator.class.getClassLoader().getResource(resourceName);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            System.err.println("Invalid resource location: " + url);
+            return null;
+        }
+    }
+
+    /**
+     * Locates a data file such as the employee or attendance file. Reads and writes both
+     * go through here, so they always agree on which copy is used.
+     * @param fileName The file name, e.g. "employee-data.tsv"
+     * @return The file in the data directory (it may not exist yet), or the classpath
+     *         copy when no data directory is available (null if that is missing too)
+     */
+    public static Path dataFile(String fileName) {
+        Path dataDirectory = PayrollConfig.getDataDirectory();
+        if (dataDirectory != null) {
+            return dataDirectory.resolve(fileName);
+        }
+        return resolve(fileName);
+    }
+}
@@ -2,6 +2,8 @@ package GUI;
 
 import Core.Employee;
 import Core.PayrollSystem;
+import DataManager.DataChangeListener;
+import FileReaders.LoadProgressListener;
 import GUI.EmployeeManagementPanel;
 
 import javax.swing.*;
@@ -17,6 +19,7 @@ public class EmployeeListView extends JFrame {
     private JButton viewEmployeeButton;
     private JButton newEmployeeButton;
     private JButton manageEmployeesButton; // New button for managing employees
+    private JProgressBar loadProgressBar; // Shows attendance records loading in the background
 
     public EmployeeListView() {
         setTitle("MotorPH Employee Management");
@@ -59,6 +62,16 @@ public class EmployeeListView extends JFrame {
         buttonPanel.add(newEmployeeButton);
         buttonPanel.add(manageEmployeesButton); // Add the new button
 
+        // Progress bar for the background attendance load (hidden once loaded)
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setString("Loading attendance records...");
+        loadProgressBar.setVisible(false);
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        southPanel.add(loadProgressBar, BorderLayout.SOUTH);
+
         // Add header label
         JLabel headerLabel = new JLabel("MotorPH Employee Records", JLabel.CENTER);
         headerLabel.setFont(new Font("Arial", Font.BOLD, 20));
@@ -68,7 +81,7 @@ public class EmployeeListView extends JFrame {
         getContentPane().setLayout(new BorderLayout());
         getContentPane().add(headerLabel, BorderLayout.NORTH);
         getContentPane().add(scrollPane, BorderLayout.CENTER);
-        getContentPane().add(buttonPanel, BorderLayout.SOUTH);
+        getContentPane().add(southPanel, BorderLayout.SOUTH);
     }
 
     // New method to open the employee management panel
@@ -91,6 +104,35 @@ public class EmployeeListView extends JFrame {
     public void setPayrollSystem(PayrollSystem payrollSystem) {
         this.payrollSystem = payrollSystem;
         refreshEmployeeTable();
+        trackTimeLogLoad();
+
+        // Keep the table in step with edits made to the data files by other processes
+        payrollSystem.addDataChangeListener(new DataChangeListener() {
+            @Override
+            public void employeesChanged(List<Employee> added, List<Employee> updated, List<String> removed) {
+                SwingUtilities.invokeLater(() -> applyEmployeeChanges(added, updated, removed));
+            }
+        });
+    }
+
+    // Shows the attendance load progress until the background load finishes
+    private void trackTimeLogLoad() {
+        if (payrollSystem.isTimeLogsLoaded()) {
+            loadProgressBar.setVisible(false);
+            return;
+        }
+
+        loadProgressBar.setValue(0);
+        loadProgressBar.setVisible(true);
+
+        LoadProgressListener listener = (loaded, total) -> SwingUtilities.invokeLater(() ->
+                loadProgressBar.setValue(total == 0 ? 100 : (int) (loaded * 100 / total)));
+        payrollSystem.addLoadProgressListener(listener);
+
+        payrollSystem.whenTimeLogsLoaded(() -> {
+            payrollSystem.removeLoadProgressListener(listener);
+            SwingUtilities.invokeLater(() -> loadProgressBar.setVisible(false));
+        });
     }
 
     public void refreshEmployeeTable() {
@@ -101,16 +143,7 @@ public class EmployeeListView extends JFrame {
         List<Employee> employees = payrollSystem.getAllEmployees();
 
         for (Employee employee : employees) {
-            Object[] rowData = {
-                    employee.getEmployeeNumber(),
-                    employee.getLastName(),
-                    employee.getFirstName(),
-                    employee.getSssNumber(),
-                    employee.getPhilhealthNumber(),
-                    employee.getTinNumber(),
-                    employee.getPagIbigNumber()
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(toRowData(employee));
         }
 
         // Sort by employee number
@@ -118,6 +151,56 @@ public class EmployeeListView extends JFrame {
         employeeTable.setRowSorter(sorter);
     }
 
+    private Object[] toRowData(Employee employee) {
+        return new Object[]{
+                employee.getEmployeeNumber(),
+                employee.getLastName(),
+                employee.getFirstName(),
+                employee.getSssNumber(),
+                employee.getPhilhealthNumber(),
+                employee.getTinNumber(),
+                employee.getPagIbigNumber()
+        };
+    }
+
+    // Applies employee file changes to the table without rebuilding it
+    private void applyEmployeeChanges(List<Employee> added, List<Employee> updated, List<String> removed) {
+        for (String employeeNumber : removed) {
+            int row = findModelRow(employeeNumber);
+            if (row >= 0) {
+                tableModel.removeRow(row);
+            }
+        }
+        for (Employee employee : updated) {
+            showEmployee(employee);
+        }
+        // Rows this process added itself are already shown, so treat adds as upserts
+        for (Employee employee : added) {
+            showEmployee(employee);
+        }
+    }
+
+    private void showEmployee(Employee employee) {
+        int row = findModelRow(employee.getEmployeeNumber());
+        Object[] rowData = toRowData(employee);
+        if (row < 0) {
+            tableModel.addRow(rowData);
+            return;
+        }
+        for (int column = 0; column < rowData.length; column++) {
+            tableModel.setValueAt(rowData[column], row, column);
+        }
+    }
+
+    private int findModelRow(String employeeNumber) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if (employeeNumber.equals(tableModel.getValueAt(row, 0))) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
     private void viewSelectedEmployee() {
         int selectedRow = employeeTable.getSelectedRow();
         if (selectedRow >= 0) {
@@ -141,11 +224,6 @@ public class EmployeeListView extends JFrame {
     }
 
     private Employee findEmployeeByNumber(String employeeNumber) {
-        for (Employee emp : payrollSystem.getAllEmployees()) {
-            if (emp.getEmployeeNumber().equals(employeeNumber)) {
-                return emp;
-            }
-        }
-        return null;
+        return payrollSystem.findEmployee(employeeNumber);
     }
 }
@@ -2,19 +2,31 @@ package GUI;
 
 import Core.Employee;
 import Core.PayrollSystem;
-import DataManager.EmployeeDataManager;
+import DataManager.DataChangeListener;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
 
 public class EmployeeManagementPanel extends JPanel {
+    // Typing pauses this long before the search runs
+    private static final int SEARCH_DELAY_MS = 200;
+
     private PayrollSystem payrollSystem;
-    private EmployeeDataManager employeeDataManager;
     private JTable employeeTable;
     private DefaultTableModel tableModel;
 
+    // Search as you type: the timer debounces keystrokes, the worker queries the index
+    private JTextField searchField;
+    private Timer searchTimer;
+    private transient SwingWorker<List<Employee>, Void> searchWorker;
+
     // Form fields for employee data
     private JTextField txtEmployeeNumber;
     private JTextField txtLastName;
@@ -29,13 +41,20 @@ public class EmployeeManagementPanel extends JPanel {
     private JTextField txtPhoneAllowance;
     private JTextField txtClothingAllowance;
 
+    // Applies changes made to the data files by other processes
+    private final transient DataChangeListener dataChangeListener = new DataChangeListener() {
+        @Override
+        public void employeesChanged(List<Employee> added, List<Employee> updated, List<String> removed) {
+            SwingUtilities.invokeLater(() -> applyEmployeeChanges(added, updated, removed));
+        }
+    };
+
     // Buttons
     private JButton btnUpdate;
     private JButton btnDelete;
     private JButton btnClear;
 
     public EmployeeManagementPanel() {
-        employeeDataManager = new EmployeeDataManager();
         checkResourceFiles(); // Verify files exist
 
         setLayout(new BorderLayout());
@@ -123,18 +142,34 @@ public class EmployeeManagementPanel extends JPanel {
 
         // Add search panel at the top
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JTextField searchField = new JTextField(20);
+        searchField = new JTextField(20);
         JButton searchButton = new JButton("Search");
 
-        searchButton.addActionListener(e -> {
-            String searchTerm = searchField.getText().toLowerCase().trim();
-            if (searchTerm.isEmpty()) {
-                loadEmployeeData(); // Reset to show all employees
-            } else {
-                filterEmployeeTable(searchTerm);
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> filterEmployeeTable(searchField.getText()));
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
             }
         });
 
+        // Searching right away still works, for whoever does not want to wait
+        searchButton.addActionListener(e -> {
+            searchTimer.stop();
+            filterEmployeeTable(searchField.getText());
+        });
+
         searchPanel.add(new JLabel("Search:"));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
@@ -144,26 +179,51 @@ public class EmployeeManagementPanel extends JPanel {
         return panel;
     }
 
-    // Filter employee table based on search term
+    // Filter employee table based on search term. The index is queried on a worker
+    // thread; only the newest search gets to fill the table.
     private void filterEmployeeTable(String searchTerm) {
-        tableModel.setRowCount(0);
-
-        for (Employee emp : payrollSystem.getAllEmployees()) {
-            // Search in multiple fields
-            if (emp.getEmployeeNumber().toLowerCase().contains(searchTerm) ||
-                emp.getLastName().toLowerCase().contains(searchTerm) ||
-                emp.getFirstName().toLowerCase().contains(searchTerm) ||
-                emp.getPosition().toLowerCase().contains(searchTerm)) {
-
-                Object[] row = {
-                    emp.getEmployeeNumber(),
-                    emp.getLastName(),
-                    emp.getFirstName(),
-                    emp.getPosition()
-                };
-                tableModel.addRow(row);
+        if (payrollSystem == null) {
+            return;
+        }
+        if (searchWorker != null) {
+            searchWorker.cancel(false);
+        }
+        searchWorker = new SwingWorker<>() {
+            @Override
+            protected List<Employee> doInBackground() {
+                return payrollSystem.searchEmployees(searchTerm);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || searchWorker != this) {
+                    return;
+                }
+                try {
+                    showEmployees(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error searching employees: " + e.getMessage());
+                }
             }
+        };
+        searchWorker.execute();
+    }
+
+    // Replaces the table rows in one go, with a single change event instead of one per row
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void showEmployees(List<Employee> employees) {
+        Vector rows = tableModel.getDataVector();
+        rows.clear();
+        rows.ensureCapacity(employees.size());
+        for (Employee emp : employees) {
+            Vector<Object> row = new Vector<>(4);
+            row.add(emp.getEmployeeNumber());
+            row.add(emp.getLastName());
+            row.add(emp.getFirstName());
+            row.add(emp.getPosition());
+            rows.add(row);
         }
+        tableModel.fireTableDataChanged();
     }
 
     private JPanel createFormPanel() {
@@ -220,33 +280,63 @@ public class EmployeeManagementPanel extends JPanel {
     public void setPayrollSystem(PayrollSystem payrollSystem) {
         this.payrollSystem = payrollSystem;
         loadEmployeeData();
+        payrollSystem.addDataChangeListener(dataChangeListener);
+    }
+
+    // Stop listening for file changes once the panel is taken off screen
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        if (payrollSystem != null) {
+            payrollSystem.removeDataChangeListener(dataChangeListener);
+        }
+    }
+
+    // Applies employee file changes to the table without rebuilding it
+    private void applyEmployeeChanges(List<Employee> added, List<Employee> updated, List<String> removed) {
+        for (int row = tableModel.getRowCount() - 1; row >= 0; row--) {
+            if (removed.contains(tableModel.getValueAt(row, 0))) {
+                tableModel.removeRow(row);
+            }
+        }
+        for (Employee emp : updated) {
+            showEmployee(emp);
+        }
+        // Rows this process added itself are already shown, so treat adds as upserts
+        for (Employee emp : added) {
+            showEmployee(emp);
+        }
+    }
+
+    private void showEmployee(Employee emp) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if (emp.getEmployeeNumber().equals(tableModel.getValueAt(row, 0))) {
+                tableModel.setValueAt(emp.getLastName(), row, 1);
+                tableModel.setValueAt(emp.getFirstName(), row, 2);
+                tableModel.setValueAt(emp.getPosition(), row, 3);
+                return;
+            }
+        }
+        tableModel.addRow(new Object[]{
+                emp.getEmployeeNumber(),
+                emp.getLastName(),
+                emp.getFirstName(),
+                emp.getPosition()
+        });
     }
 
     private void loadEmployeeData() {
-        // Clear existing data
-        tableModel.setRowCount(0);
-
-        // Add employee data to table
-        for (Employee emp : payrollSystem.getAllEmployees()) {
-            Object[] row = {
-                    emp.getEmployeeNumber(),
-                    emp.getLastName(),
-                    emp.getFirstName(),
-                    emp.getPosition()
-            };
-            tableModel.addRow(row);
+        // A search still running would overwrite the full list when it finishes
+        if (searchWorker != null) {
+            searchWorker.cancel(false);
+            searchWorker = null;
         }
+        showEmployees(payrollSystem.getAllEmployees());
     }
 
     private void displayEmployeeData(String employeeNumber) {
         // Find the employee in the payroll system
-        Employee emp = null;
-        for (Employee e : payrollSystem.getAllEmployees()) {
-            if (e.getEmployeeNumber().equals(employeeNumber)) {
-                emp = e;
-                break;
-            }
-        }
+        Employee emp = payrollSystem.findEmployee(employeeNumber);
 
         if (emp != null) {
             txtEmployeeNumber.setText(emp.getEmployeeNumber());
@@ -273,13 +363,7 @@ public class EmployeeManagementPanel extends JPanel {
             String employeeNumber = txtEmployeeNumber.getText();
 
             // Find existing employee to get any values we don't have in the form
-            Employee existingEmployee = null;
-            for (Employee e : payrollSystem.getAllEmployees()) {
-                if (e.getEmployeeNumber().equals(employeeNumber)) {
-                    existingEmployee = e;
-                    break;
-                }
-            }
+            Employee existingEmployee = payrollSystem.findEmployee(employeeNumber);
 
             if (existingEmployee == null) {
                 JOptionPane.showMessageDialog(this,
@@ -287,7 +371,9 @@ public class EmployeeManagementPanel extends JPanel {
                         "Error", JOptionPane.ERROR_MESSAGE);
         }
 
-        // Create updated employee object with all required parameters
+        // Create updated employee object with all required parameters; the rates follow
+        // the (possibly edited) basic salary
+        double basicSalary = Double.parseDouble(txtBasicSalary.getText());
         Employee updatedEmployee = new Employee(
                 employeeNumber,                              // Employee Number
                 txtLastName.getText(),                       // Last Name
@@ -302,24 +388,18 @@ public class EmployeeManagementPanel extends JPanel {
                 existingEmployee.getStatus(),                // Employment Status
                 txtPosition.getText(),                       // Position
                 existingEmployee.getImmediateSupervisor(),   // Immediate Supervisor
-                Double.parseDouble(txtBasicSalary.getText()), // Basic Salary
+                basicSalary,                                 // Basic Salary
                 Double.parseDouble(txtRiceSubsidy.getText()), // Rice Subsidy
                 Double.parseDouble(txtPhoneAllowance.getText()), // Phone Allowance
                 Double.parseDouble(txtClothingAllowance.getText()), // Clothing Allowance
-                existingEmployee.getGrossSemiMonthlyRate(),  // Gross Semi-Monthly Rate
-                existingEmployee.getHourlyRate()             // Hourly Rate
+                Employee.semiMonthlyRateOf(basicSalary),     // Gross Semi-Monthly Rate
+                Employee.hourlyRateOf(basicSalary)           // Hourly Rate
         );
 
-        // Update in memory first
-        payrollSystem.updateEmployee(employeeNumber, updatedEmployee);
-
-        // Then update in file system using EmployeeDataManager
-        boolean success = employeeDataManager.updateEmployee(updatedEmployee);
+        // Update in memory and in the file system
+        boolean success = payrollSystem.updateEmployee(employeeNumber, updatedEmployee);
 
         if (success) {
-            // Refresh the employee list in PayrollSystem
-            payrollSystem.setEmployees(employeeDataManager.getRefreshedEmployees());
-
             // Refresh table
             loadEmployeeData();
 
@@ -359,17 +439,10 @@ public class EmployeeManagementPanel extends JPanel {
 
         if (choice == JOptionPane.YES_OPTION) {
             try {
-                // Delete from memory first
-                payrollSystem.deleteEmployee(employeeNumber);
-
-                // Then delete from file system
-                boolean success = employeeDataManager.deleteEmployee(employeeNumber);
+                // Delete from memory and from the file system
+                boolean success = payrollSystem.deleteEmployee(employeeNumber);
 
                 if (success) {
-                    // Refresh the employee and time log lists in PayrollSystem
-                    payrollSystem.setEmployees(employeeDataManager.getRefreshedEmployees());
-                    payrollSystem.setTimeLogs(employeeDataManager.getRefreshedTimeLogs());
-
                     // Refresh table
                     loadEmployeeData();
 
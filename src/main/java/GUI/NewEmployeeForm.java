@@ -2,11 +2,9 @@ package GUI;
 
 import Core.Employee;
 import Core.PayrollSystem;
-import FileReaders.EmployeeWriter;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.IOException;
 
 public class NewEmployeeForm extends JFrame {
     private EmployeeListView parentFrame;
@@ -136,9 +134,9 @@ public class NewEmployeeForm extends JFrame {
             double phoneAllowance = Double.parseDouble(phoneAllowanceField.getText());
             double clothingAllowance = Double.parseDouble(clothingAllowanceField.getText());
 
-            // Additional required amounts (with default values - adjust as needed)
-            double semiMonthlyRate = basicSalary / 2;
-            double hourlyRate = basicSalary / 22 / 8; // Assuming 22 working days per month, 8 hours per day
+            // Rates derived from the basic salary
+            double semiMonthlyRate = Employee.semiMonthlyRateOf(basicSalary);
+            double hourlyRate = Employee.hourlyRateOf(basicSalary);
 
             // Create new employee - match the order with Employee constructor
             Employee newEmployee = new Employee(
@@ -163,12 +161,12 @@ public class NewEmployeeForm extends JFrame {
                     hourlyRate                              // double hourlyRate
             );
 
-            // Add to payroll system
-            payrollSystem.addEmployee(newEmployee);
-
-            // Save to CSV file
-            EmployeeWriter writer = new EmployeeWriter();
-            writer.appendEmployeeToFile(newEmployee);
+            // Add to payroll system, which also appends the row to the employee file
+            if (!payrollSystem.addEmployee(newEmployee)) {
+                JOptionPane.showMessageDialog(this,
+                        "Could not save employee. The employee number may already be in use.");
+                return;
+            }
 
             // Refresh employee list
             parentFrame.refreshEmployeeTable();
@@ -179,9 +177,6 @@ public class NewEmployeeForm extends JFrame {
 
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter valid numeric values for salary and allowances.");
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error saving employee to file: " + e.getMessage());
-            e.printStackTrace();
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Error saving employee: " + e.getMessage());
             e.printStackTrace();
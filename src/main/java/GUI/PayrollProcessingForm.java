@@ -121,6 +121,17 @@ public class PayrollProcessingForm extends JFrame {
                 throw new IllegalArgumentException("Employee not found.");
             }
 
+            // Attendance may still be loading in the background; finish once it is in
+            if (!payrollSystem.isTimeLogsLoaded()) {
+                processButton.setEnabled(false);
+                resultArea.setText("Waiting for attendance records to finish loading...");
+                payrollSystem.whenTimeLogsLoaded(() -> SwingUtilities.invokeLater(() -> {
+                    processButton.setEnabled(true);
+                    generatePayslip(employee, startDate, endDate);
+                }));
+                return;
+            }
+
             // Process payroll and generate payslip
             generatePayslip(employee, startDate, endDate);
 
@@ -1,6 +1,5 @@
 import Core.PayrollSystem;
 import FileReaders.DataLoader;
-import FileReaders.DataLoaderTest;
 import GUI.EmployeeListView;
 import GUI.EmployeeManagementPanel;
 import GUI.PayrollProcessingForm;
@@ -18,17 +17,17 @@ public class Main {
             e.printStackTrace();
         }
 
-        // Test the DataLoader fix first
-        System.out.println("Testing DataLoader fix...");
-        DataLoaderTest.testLoadTimeLogs();
-        System.out.println("DataLoader test completed.\n");
-
-        // Create PayrollSystem which will load data in its constructor
+        // Create PayrollSystem which loads employees now and time logs in the background
         PayrollSystem payrollSystem = new PayrollSystem();
 
         // Check if data was loaded
         System.out.println("Loaded " + payrollSystem.getAllEmployees().size() + " employees");
-        System.out.println("Loaded " + payrollSystem.getTimeLogs().size() + " time logs");
+        payrollSystem.whenTimeLogsLoaded(() -> {
+            System.out.println("Loaded " + payrollSystem.getTimeLogs().size() + " time logs");
+
+            // Pick up rows appended or edited by other processes from here on
+            payrollSystem.startWatchingFiles();
+        });
 
         // Initialize and show the GUI using SwingUtilities
         SwingUtilities.invokeLater(() -> {